@@ -0,0 +1,225 @@
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark compares the search strategies of DLX on a small corpus of sudoku puzzles, ranging from easy puzzles to ones
+ * that are known to be hard for backtracking solvers. For every combination of column selection, row ordering and restart
+ * policy it measures the time and the number of search nodes needed to find a first solution. Randomized strategies are run
+ * several times with different seeds, since for them the spread matters as much as the average. It also compares the
+ * exact cover engines (DLX and BitsetDLX) on enumerating every solution of a larger corpus (see enumerationCorpus), and finally DLX with a range of hybrid thresholds (see DLX.setHybridThreshold).
+ *
+ * Usage: java Benchmark [trials]
+ *
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+public class Benchmark {
+
+   private static final int [] HYBRID_THRESHOLDS = {0, 16, 32, 48, 64, 96, 128, 160, 192, 256, 325};
+
+   /**
+    * The benchmark corpus, one puzzle per string, read row by row with '.' for unknown squares.
+    */
+   static final String [] CORPUS = {
+      // the puzzle in Driver, which has 874 solutions
+      "...8.1.........43.5............7.8........1...29.3....6......75..34........2..6..",
+      // easy
+      "...26.7.168..7..9.19...45..82.1...4...46.29...5...3.28..93...74.4..5..367.3.18...",
+      // Arto Inkala's "hardest sudoku"
+      "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+      // designed against naive backtracking: the first row of the solution is 987654321
+      "..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9",
+      // "Golden Nugget"
+      ".......39.....1..5..3.5.8....8.9...6.7...2...1..4.......9.8..5..2....6..4..7.....",
+      // "Easter Monster"
+      "1.......2.9.4...5...6...7...5.9.3.......7.......85..4.7.....6...3...9.8...2.....1",
+   };
+
+   /**
+    * Converts a puzzle from the corpus into a sudoku board.
+    * @param puzzle: the puzzle, read row by row with '.' or '0' for unknown squares
+    * @return the sudoku board, with 0 for unknown squares
+    */
+   static int [][] parse (String puzzle)
+   {
+      int [][] board = new int [9][9];
+      for (int i=0; i<81; i++)
+      {
+         char ch = puzzle.charAt(i);
+         board[i/9][i%9] = (ch>='1' && ch<='9') ? ch-'0' : 0;
+      }
+      return board;
+   }
+
+   /**
+    * The corpus for enumerating every solution: the puzzles of CORPUS, followed by puzzles with a few to a few thousand
+    * solutions, made by erasing 45, 50, 54 and 56 random squares from the solution of each of the four hardest puzzles.
+    */
+   static ArrayList<int [][]> enumerationCorpus ()
+   {
+      ArrayList<int [][]> corpus = new ArrayList<int [][]>();
+      for (String s : CORPUS) corpus.add(parse(s));
+      Random rnd = new Random(3);
+      for (int p=2; p<CORPUS.length; p++)
+      {
+         int [][] solution = new SudokuDLX().getSolutions(corpus.get(p)).get(0);
+         for (int erased : new int [] {45, 50, 54, 56})
+         {
+            int [][] board = new int [9][];
+            for (int i=0; i<9; i++) board[i] = solution[i].clone();
+            for (int k=0; k<erased; )
+            {
+               int cell = rnd.nextInt(81);
+               if (board[cell/9][cell%9]!=0)
+               {
+                  board[cell/9][cell%9] = 0;
+                  k++;
+               }
+            }
+            corpus.add(board);
+         }
+      }
+      return corpus;
+   }
+
+   private static int clues (int [][] puzzle)
+   {
+      int n = 0;
+      for (int [] row : puzzle)
+      {
+         for (int v : row) if (v!=0) n++;
+      }
+      return n;
+   }
+
+   /**
+    * A combination of search strategies. Strategies are created anew for every run, since some of them keep state.
+    */
+   private static class Config {
+      final String name;
+      final Supplier<ColumnSelector> selector;
+      final Supplier<RowOrdering> ordering;
+      final RestartPolicy policy;
+      final boolean randomized;
+
+      Config (String n, Supplier<ColumnSelector> s, Supplier<RowOrdering> o, RestartPolicy p, boolean r)
+      {
+         name=n; selector=s; ordering=o; policy=p; randomized=r;
+      }
+   }
+
+   public static void main (String [] args)
+   {
+      int trials = args.length>0 ? Integer.parseInt(args[0]) : 20;
+      Random seeds = new Random(2018);
+
+      ArrayList<Config> configs = new ArrayList<Config>();
+      configs.add(new Config("min-size / natural", MinSizeSelector::new, NaturalOrdering::new, RestartPolicy.NEVER, false));
+      configs.add(new Config("min-size+type / natural", ConstraintTypeSelector::new, NaturalOrdering::new, RestartPolicy.NEVER, false));
+      configs.add(new Config("weighted / natural", () -> new WeightedSelector(324), NaturalOrdering::new, RestartPolicy.NEVER, false));
+      configs.add(new Config("min-size / value-freq", MinSizeSelector::new, ValueFrequencyOrdering::new, RestartPolicy.NEVER, false));
+      configs.add(new Config("min-size / random", MinSizeSelector::new, () -> new RandomOrdering(new Random(seeds.nextLong())), RestartPolicy.NEVER, true));
+      configs.add(new Config("min-size / random / luby", MinSizeSelector::new, () -> new RandomOrdering(new Random(seeds.nextLong())), new LubyRestartPolicy(256), true));
+      configs.add(new Config("weighted / random / luby", () -> new WeightedSelector(324), () -> new RandomOrdering(new Random(seeds.nextLong())), new LubyRestartPolicy(256), true));
+
+      SudokuDLX megamind = new SudokuDLX();
+      System.out.printf("%-26s %6s %12s %12s %12s %12s %9s%n", "strategy", "puzzle", "mean ms", "max ms", "mean nodes", "max nodes", "restarts");
+      for (Config config : configs)
+      {
+         for (int p=0; p<CORPUS.length; p++)
+         {
+            int [][] puzzle = parse(CORPUS[p]);
+            int runs = config.randomized ? trials : 1;
+            double totalMs = 0, maxMs = 0, totalNodes = 0, totalRestarts = 0;
+            long maxNodes = 0;
+            for (int t=0; t<runs; t++)
+            {
+               DLX dlx = megamind.makeDLX(puzzle);
+               dlx.setColumnSelector(config.selector.get());
+               dlx.setRowOrdering(config.ordering.get());
+               long start = System.nanoTime();
+               dlx.getFirstSolution(config.policy);
+               double ms = (System.nanoTime()-start)/1e6;
+               totalMs += ms;
+               maxMs = Math.max(maxMs, ms);
+               totalNodes += dlx.getNodeCount();
+               maxNodes = Math.max(maxNodes, dlx.getNodeCount());
+               totalRestarts += dlx.getRestartCount();
+            }
+            System.out.printf("%-26s %6d %12.3f %12.3f %12.1f %12d %9.1f%n", config.name, p, totalMs/runs, maxMs,
+                  totalNodes/runs, maxNodes, totalRestarts/runs);
+         }
+      }
+      
+      // enumerating every solution with each engine, after one untimed pass over the corpus to warm up the JIT. DLX runs
+      // without the hybrid mode here (makeDLX); the hybrid thresholds are compared below.
+      ArrayList<int [][]> corpus = enumerationCorpus();
+      for (int [][] puzzle : corpus)
+      {
+         megamind.makeDLX(puzzle).getSolutions();
+         megamind.makeSolver(puzzle, SudokuDLX.Engine.BITSET).getSolutions();
+      }
+      System.out.println();
+      System.out.printf("%6s %6s %10s %12s %12s%n", "puzzle", "clues", "solutions", "plain DLX ms", "bitset ms");
+      for (int p=0; p<corpus.size(); p++)
+      {
+         int [][] puzzle = corpus.get(p);
+         double [] ms = new double [2];
+         int count = 0;
+         for (int e=0; e<2; e++)
+         {
+            for (int t=0; t<trials; t++)
+            {
+               ExactCoverSolver solver = e==0 ? megamind.makeDLX(puzzle) : megamind.makeSolver(puzzle, SudokuDLX.Engine.BITSET);
+               long start = System.nanoTime();
+               count = solver.getSolutions().size();
+               ms[e] += (System.nanoTime()-start)/1e6/trials;
+            }
+         }
+         System.out.printf("%6d %6d %10d %12.3f %12.3f%n", p, clues(puzzle), count, ms[0], ms[1]);
+      }
+      
+      // DLX enumerating every solution, handing over to the bitboard solver below each threshold of open columns 
+      // (0 = never, 325 = from the start), after one untimed pass to warm up the JIT
+      for (int [][] puzzle : corpus)
+      {
+         for (int h : HYBRID_THRESHOLDS) hybridMillis(megamind, puzzle, h, 1);
+      }
+      System.out.println();
+      System.out.printf("%6s %10s", "puzzle", "solutions");
+      for (int h : HYBRID_THRESHOLDS) System.out.printf(" %8s", "h="+h);
+      System.out.println("  (ms)");
+      double [] total = new double [HYBRID_THRESHOLDS.length];
+      for (int p=0; p<corpus.size(); p++)
+      {
+         int [][] puzzle = corpus.get(p);
+         System.out.printf("%6d %10d", p, megamind.makeSolver(puzzle, SudokuDLX.Engine.BITSET).getSolutions().size());
+         for (int i=0; i<HYBRID_THRESHOLDS.length; i++)
+         {
+            double ms = hybridMillis(megamind, puzzle, HYBRID_THRESHOLDS[i], trials);
+            total[i] += ms;
+            System.out.printf(" %8.3f", ms);
+         }
+         System.out.println();
+      }
+      System.out.printf("%17s", "total");
+      for (double ms : total) System.out.printf(" %8.3f", ms);
+      System.out.println();
+   }
+
+   /**
+    * @return the mean time in milliseconds that DLX with the given hybrid threshold takes to find every solution
+    */
+   private static double hybridMillis (SudokuDLX megamind, int [][] puzzle, int threshold, int trials)
+   {
+      double ms = 0;
+      for (int t=0; t<trials; t++)
+      {
+         DLX dlx = megamind.makeDLX(puzzle);
+         dlx.setHybridThreshold(threshold);
+         long start = System.nanoTime();
+         dlx.getSolutions();
+         ms += (System.nanoTime()-start)/1e6/trials;
+      }
+      return ms;
+   }
+}
@@ -0,0 +1,418 @@
+import java.util.*;
+
+/**
+ * BitsetDLX runs Algorithm X with bitsets instead of dancing links. The sudoku exact cover grid has only 324 columns, so the
+ * set of constraints that are still open fits in six longs, and the set of candidate rows that are still available fits in
+ * twelve. Each row of the grid is stored as the bitset of the columns it satisfies, and each column as the bitset of the
+ * rows that satisfy it. Choosing a row then takes a handful of bitwise operations:
+ *    1. open columns = open columns ANDNOT (columns of the row)
+ *    2. available rows = available rows ANDNOT (rows of every column of the row)
+ * and the column with the fewest available rows is found by counting bits (popcount) of (rows of the column) AND (available
+ * rows), looking only at the words where the column has rows at all. The state of every level of the search is kept in preallocated arrays, so backtracking is free and the search
+ * does not allocate. Like DLX, it finds all solutions, and both engines sit behind the ExactCoverSolver interface.
+ *
+ * The rows are decoded into a sudoku board according to the layout of SudokuDLX: row 81*(R-1)+9*(C-1)+V-1 stands for
+ * value V in the cell at row R and column C.
+ *
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+public class BitsetDLX implements ExactCoverSolver {
+
+   private final int size; // side length of the sudoku board
+   private final int colWords, rowWords; // number of longs in a set of columns, in a set of rows
+   private final long[][] rowCols; // rowCols[r] = the columns that row r satisfies
+   private final int[][] rowColList; // the same, as a list of column indices
+   private final long[][] colRows; // colRows[c] = the rows that satisfy column c
+   private final int[][] colWordList; // colWordList[c] = the words of colRows[c] that are not zero
+   private final long[][] openCols; // openCols[k] = the open columns at depth k
+   private final long[][] availRows; // availRows[k] = the available rows at depth k
+   private final int[] chosen; // chosen[k] = the row chosen at depth k
+   private ArrayList<int[][]> found;
+   private int[][] symRows, symCols; // the automorphisms of enumerateSymmetric, as permutations of the rows and of the columns
+
+   /**
+    * Constructor: create an instance of BitsetDLX for a given exact cover grid of a sudoku board.
+    * @param grid: the exact cover grid, laid out as in SudokuDLX
+    * @param boardSize: the side length of the sudoku board
+    */
+   public BitsetDLX(int[][] grid, int boardSize){
+      size = boardSize;
+      final int ROWS = grid.length;
+      final int COLS = grid[0].length;
+      colWords = (COLS + 63) / 64;
+      rowWords = (ROWS + 63) / 64;
+      rowCols = new long[ROWS][colWords];
+      rowColList = new int[ROWS][];
+      colRows = new long[COLS][rowWords];
+
+      long[] allCols = new long[colWords];
+      long[] allRows = new long[rowWords];
+      for(int i = 0; i < ROWS; i++){
+         int n = 0;
+         for(int j = 0; j < COLS; j++){
+            if (grid[i][j] == 1){
+               n++;
+            }
+         }
+         rowColList[i] = new int[n];
+         n = 0;
+         for(int j = 0; j < COLS; j++){
+            if (grid[i][j] == 1){
+               rowColList[i][n++] = j;
+               rowCols[i][j >>> 6] |= 1L << j;
+               colRows[j][i >>> 6] |= 1L << i;
+            }
+         }
+         if (n > 0){
+            allRows[i >>> 6] |= 1L << i;
+         }
+      }
+      colWordList = new int[COLS][];
+      for(int j = 0; j < COLS; j++){
+         allCols[j >>> 6] |= 1L << j;
+         int n = 0;
+         for(int w = 0; w < rowWords; w++){
+            if (colRows[j][w] != 0){
+               n++;
+            }
+         }
+         colWordList[j] = new int[n];
+         n = 0;
+         for(int w = 0; w < rowWords; w++){
+            if (colRows[j][w] != 0){
+               colWordList[j][n++] = w;
+            }
+         }
+      }
+
+      openCols = new long[COLS + 1][];
+      availRows = new long[COLS + 1][];
+      for(int k = 0; k <= COLS; k++){
+         openCols[k] = new long[colWords];
+         availRows[k] = new long[rowWords];
+      }
+      openCols[0] = allCols;
+      availRows[0] = allRows;
+      chosen = new int[COLS + 1];
+   }
+
+   public ArrayList<int[][]> getSolutions(){
+      found = new ArrayList<int[][]>();
+      search(0);
+      return found;
+   }
+
+   /**
+    * Recursively search for solutions to the exact cover problem using Algorithm X.
+    *
+    * @param k: indicates how many levels deep the recursive stack is
+    */
+   private void search(int k){
+      long[] cols = openCols[k];
+      long[] rows = availRows[k];
+
+      int c = selectColumn(cols, rows);
+      if (c == -1){ // all the columns satisfied
+         found.add(parseBoard(k));
+         return;
+      }
+
+      long[] cand = colRows[c];
+      for(int w : colWordList[c]){
+         long bits = cand[w] & rows[w];
+         while (bits != 0){
+            int r = (w << 6) + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+
+            choose(k, r);
+            search(k + 1);
+         }
+      }
+   }
+
+   /**
+    * Helper method for search. Chooses row r at depth k, which sets up the open columns and available rows of depth k+1.
+    */
+   private void choose(int k, int r){
+      long[] cols = openCols[k];
+      long[] nextCols = openCols[k + 1];
+      long[] nextRows = availRows[k + 1];
+      long[] rc = rowCols[r];
+      for(int i = 0; i < colWords; i++){
+         nextCols[i] = cols[i] & ~rc[i];
+      }
+      System.arraycopy(availRows[k], 0, nextRows, 0, rowWords);
+      for(int j : rowColList[r]){
+         long[] clash = colRows[j];
+         for(int i : colWordList[j]){
+            nextRows[i] &= ~clash[i];
+         }
+      }
+      chosen[k] = r;
+   }
+
+   /**
+    * Enumerates the solutions of a sudoku board up to symmetry. The group holds automorphisms of the board (see
+    * SudokuSymmetry), each of which turns solutions into solutions. At every node of the search tree, the automorphisms that
+    * map the set of rows chosen so far onto itself turn the solutions below the node into each other, and they permute the
+    * columns. Instead of branching on a single column, the search branches on a whole orbit of columns under that group: a
+    * branch is a set of rows that covers every column of the orbit, and every solution below the node holds exactly one
+    * such set. The automorphisms map these sets onto each other, so they fall into orbits, and only one set of each orbit
+    * needs to be explored: the subtree below every other set of the orbit is its image under a known automorphism. Below
+    * the chosen set, only the automorphisms that map it onto itself remain. The orbit with the fewest sets is chosen (a
+    * column with a single row gives a single set, which keeps the whole group), and once the group is down to the
+    * identity, the search goes on like search.
+    *
+    * Every solution that is reached stands for as many solutions as the images it has been promised; these are added to
+    * the count and to the tally of values in each square, so both come out exactly as if every solution had been reached.
+    *
+    * @param group: automorphisms of the board as permutations of the rows, the identity first
+    * @return the count, the tally and the number of solutions reached
+    */
+   SudokuSymmetry.Result enumerateSymmetric(List<int[]> group){
+      SudokuSymmetry.Result result = new SudokuSymmetry.Result();
+      result.groupSize = group.size();
+      symRows = group.toArray(new int[0][]);
+      symCols = new int[symRows.length][];
+      int[] all = new int[symRows.length];
+      for(int g = 0; g < symRows.length; g++){
+         symCols[g] = SudokuSymmetry.columnPermutation(symRows[g]);
+         all[g] = g;
+      }
+      ArrayList<int[]> images = new ArrayList<int[]>();
+      images.add(symRows[0]);
+      symmetricSearch(0, all, images, result);
+      return result;
+   }
+
+   /**
+    * Helper method for enumerateSymmetric.
+    *
+    * @param k: indicates how many levels deep the recursive stack is
+    * @param group: the automorphisms that map the set of rows chosen at depths 0 to k-1 onto itself, as indices into symRows
+    * @param images: the automorphisms that carry the solutions below this node onto solutions elsewhere in the tree
+    * @param result: where the solutions are counted
+    */
+   private void symmetricSearch(int k, int[] group, List<int[]> images, SudokuSymmetry.Result result){
+      long[] rows = availRows[k];
+      if (group.length == 1){
+         int c = selectColumn(openCols[k], rows);
+         if (c == -1){
+            countSolution(k, images, result);
+            return;
+         }
+         long[] cand = colRows[c];
+         for(int w : colWordList[c]){
+            long bits = cand[w] & rows[w];
+            while (bits != 0){
+               int r = (w << 6) + Long.numberOfTrailingZeros(bits);
+               bits &= bits - 1;
+               choose(k, r);
+               symmetricSearch(k + 1, group, images, result);
+            }
+         }
+         return;
+      }
+
+      int[] orbit = selectOrbit(k, group);
+      if (orbit == null){
+         countSolution(k, images, result);
+         return;
+      }
+      if (orbit.length == 0){ // dead end
+         return;
+      }
+      ArrayList<int[]> sets = new ArrayList<int[]>();
+      coveringSets(k, k, orbit, sets);
+
+      HashSet<List<Integer>> done = new HashSet<List<Integer>>();
+      for(int[] set : sets){
+         List<Integer> key = sortedRows(set, null);
+         if (!done.add(key)){
+            continue;
+         }
+         // the orbit of the set, with one automorphism that carries it to each set of the orbit, and the automorphisms
+         // that map it onto itself
+         ArrayList<int[]> transversal = new ArrayList<int[]>();
+         transversal.add(symRows[group[0]]);
+         int[] below = new int[group.length];
+         int n = 0;
+         for(int g : group){
+            List<Integer> image = sortedRows(set, symRows[g]);
+            if (image.equals(key)){
+               below[n++] = g;
+            } else if (done.add(image)){
+               transversal.add(symRows[g]);
+            }
+         }
+         List<int[]> next = images;
+         if (transversal.size() > 1){
+            next = new ArrayList<int[]>(images.size() * transversal.size());
+            for(int[] m : images){
+               for(int[] t : transversal){
+                  next.add(SudokuSymmetry.compose(m, t));
+               }
+            }
+         }
+         for(int i = 0; i < set.length; i++){
+            choose(k + i, set[i]);
+         }
+         symmetricSearch(k + set.length, Arrays.copyOf(below, n), next, result);
+      }
+   }
+
+   /**
+    * Helper method for symmetricSearch. Picks the orbit of open columns under the group that has the fewest sets of rows
+    * covering it, going by the product of the number of available rows of its columns.
+    *
+    * @return the columns of the orbit, an empty array if some column has no available row, or null if every column is
+    *         satisfied
+    */
+   private int[] selectOrbit(int k, int[] group){
+      long[] cols = openCols[k];
+      long[] rows = availRows[k];
+      int[] count = new int[colRows.length];
+      for(int w = 0; w < colWords; w++){
+         long bits = cols[w];
+         while (bits != 0){
+            int j = (w << 6) + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            for(int i : colWordList[j]){
+               count[j] += Long.bitCount(colRows[j][i] & rows[i]);
+            }
+            if (count[j] == 0){
+               return new int[0];
+            }
+         }
+      }
+
+      long[] seen = new long[colWords];
+      int[] best = null;
+      double fewest = Double.MAX_VALUE;
+      for(int w = 0; w < colWords; w++){
+         long bits = cols[w] & ~seen[w];
+         while (bits != 0){
+            int j = (w << 6) + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            if ((seen[w] & (1L << j)) != 0){
+               continue;
+            }
+            int[] orbit = new int[group.length];
+            int n = 0;
+            double sets = 1;
+            for(int g : group){
+               int x = symCols[g][j];
+               if ((seen[x >>> 6] & (1L << x)) == 0){
+                  seen[x >>> 6] |= 1L << x;
+                  orbit[n++] = x;
+                  sets *= count[x];
+               }
+            }
+            if (sets < fewest){
+               fewest = sets;
+               best = Arrays.copyOf(orbit, n);
+            }
+         }
+      }
+      return best;
+   }
+
+   /**
+    * Helper method for symmetricSearch. Lists every set of compatible rows that covers each column of the orbit exactly
+    * once, choosing the rows from depth d on; rows chosen from depth k on belong to the set.
+    */
+   private void coveringSets(int k, int d, int[] orbit, List<int[]> sets){
+      int c = -1;
+      for(int j : orbit){
+         if ((openCols[d][j >>> 6] & (1L << j)) != 0){
+            c = j;
+            break;
+         }
+      }
+      if (c == -1){
+         sets.add(Arrays.copyOfRange(chosen, k, d));
+         return;
+      }
+      long[] cand = colRows[c];
+      long[] rows = availRows[d];
+      for(int w : colWordList[c]){
+         long bits = cand[w] & rows[w];
+         while (bits != 0){
+            int r = (w << 6) + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            choose(d, r);
+            coveringSets(k, d + 1, orbit, sets);
+         }
+      }
+   }
+
+   /**
+    * Helper method for symmetricSearch. Lists the rows of a set, or their images under perm if perm is not null, in order,
+    * so that sets can be compared.
+    */
+   private static List<Integer> sortedRows(int[] set, int[] perm){
+      Integer[] out = new Integer[set.length];
+      for(int i = 0; i < set.length; i++){
+         out[i] = perm == null ? set[i] : perm[set[i]];
+      }
+      Arrays.sort(out);
+      return Arrays.asList(out);
+   }
+
+   /**
+    * Helper method for symmetricSearch. Counts the solution made of the rows chosen at depths 0 to k-1, and its images.
+    */
+   private void countSolution(int k, List<int[]> images, SudokuSymmetry.Result result){
+      result.representatives++;
+      result.solutions += images.size();
+      for(int[] m : images){
+         for(int i = 0; i < k; i++){
+            int x = m[chosen[i]];
+            result.valueCounts[x / 9][x % 9 + 1]++;
+         }
+      }
+   }
+
+   /**
+    * Helper method for search. Picks the open column with the fewest available rows.
+    *
+    * @return the chosen column, or -1 if every column is satisfied
+    */
+   private int selectColumn(long[] cols, long[] rows){
+      int min = Integer.MAX_VALUE;
+      int ret = -1;
+      for(int w = 0; w < colWords; w++){
+         long bits = cols[w];
+         while (bits != 0){
+            int c = (w << 6) + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            long[] cr = colRows[c];
+            int[] words = colWordList[c];
+            int count = 0;
+            for(int i = 0; i < words.length && count < min; i++){
+               count += Long.bitCount(cr[words[i]] & rows[words[i]]);
+            }
+            if (count < min){
+               min = count;
+               ret = c;
+               if (min <= 1){ // cannot do better than a forced move or a dead end
+                  return ret;
+               }
+            }
+         }
+      }
+      return ret;
+   }
+
+   /**
+    * Helper method for search. Converts the rows chosen at depths 0 to k-1 into a sudoku board.
+    */
+   private int[][] parseBoard(int k){
+      int[][] result = new int[size][size];
+      for(int i = 0; i < k; i++){
+         int r = chosen[i];
+         result[r / (size * size)][(r / size) % size] = r % size + 1;
+      }
+      return result;
+   }
+}
@@ -7,6 +7,7 @@
 public class ColumnNode extends DancingNode {
    int size; //number of 1s (nodes) in this column
    String name;
+   int index = -1; // position of this column in the exact cover grid (-1 for the header)
    
    /**
     * Constructor: creates a new column node with name n
@@ -20,6 +21,17 @@ public class ColumnNode extends DancingNode {
       C=this;
    }
    
+   /**
+    * Constructor: creates a new column node with name n for column i of the exact cover grid
+    * @param n: name of the column 
+    * @param i: index of the column in the exact cover grid
+    */
+   public ColumnNode (String n, int i)
+   {
+      this(n);
+      index=i;
+   }
+   
    /**
     * The cover method is called on a ColumnNode when the constraint stipulated by that column is to be satisfied. The cover method 
     * removes this column and all rows that satisfy the stipulation of this column from the cover matrix of doubly linked lists. 
@@ -0,0 +1,141 @@
+/**
+ * Interface for the strategy that chooses which constraint (column) Algorithm X satisfies next (Step #2 of the algorithm).
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+public interface ColumnSelector {
+    /**
+     * Chooses the next column to cover.
+     * @param header: the root node of the DLX board; the columns that are left are linked to its right
+     * @return the chosen column header
+     */
+    ColumnNode select(ColumnNode header);
+
+    /**
+     * Called when the search reaches a dead end because the chosen column can no longer be satisfied by any row.
+     * Strategies that learn from failures override this; by default it does nothing.
+     * @param c: the column that could not be satisfied
+     */
+    default void conflict(ColumnNode c){
+    }
+}
+
+/**
+ * MinSizeSelector picks the column that has the least number of nodes (i.e. the constraint which is satisfied by the least
+ * number of partial solutions). Ties go to the column closest to the header. This is the heuristic that Knuth recommends.
+ *
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+class MinSizeSelector implements ColumnSelector{
+    public ColumnNode select(ColumnNode header){
+        int min = Integer.MAX_VALUE;
+        ColumnNode ret = null;
+        for (ColumnNode c = (ColumnNode)header.R; c != header; c = (ColumnNode)c.R){
+            if (c.size < min){
+                min = c.size;
+                ret = c;
+            }
+        }
+        return ret;
+    }
+}
+
+/**
+ * ConstraintTypeSelector picks a column with the least number of nodes, like MinSizeSelector, but breaks ties by the type
+ * of constraint. The exact cover grid is assumed to consist of consecutive blocks of typeSize columns, one block per type
+ * of constraint (for the sudoku grid built by SudokuDLX: cells, rows, columns and blocks, 81 columns each). By default
+ * the "number in row/column/block" constraints win over the "cell is full" constraints, so that hidden singles are placed
+ * before naked singles.
+ *
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+class ConstraintTypeSelector implements ColumnSelector{
+    private final int typeSize;
+    private final int[] rank; // rank[type] = priority of that type of constraint, lower wins
+
+    /**
+     * Constructor: creates a selector for the sudoku exact cover grid that prefers row, column and block constraints
+     * over cell constraints.
+     */
+    public ConstraintTypeSelector(){
+        this(81, new int[] {3, 0, 1, 2});
+    }
+
+    /**
+     * Constructor: creates a selector that breaks ties by the given ranking of constraint types
+     * @param typeSize: the number of consecutive columns that make up one type of constraint
+     * @param rank: the priority of each type of constraint, lower wins
+     */
+    public ConstraintTypeSelector(int typeSize, int[] rank){
+        this.typeSize = typeSize;
+        this.rank = rank;
+    }
+
+    public ColumnNode select(ColumnNode header){
+        int min = Integer.MAX_VALUE;
+        int minRank = Integer.MAX_VALUE;
+        ColumnNode ret = null;
+        for (ColumnNode c = (ColumnNode)header.R; c != header; c = (ColumnNode)c.R){
+            int type = c.index / typeSize;
+            int r = type < rank.length ? rank[type] : rank.length;
+            if (c.size < min || (c.size == min && r < minRank)){
+                min = c.size;
+                minRank = r;
+                ret = c;
+            }
+        }
+        return ret;
+    }
+}
+
+/**
+ * WeightedSelector picks the column with the smallest ratio of size to weight. Every column starts with weight 1, and a
+ * column's weight goes up by one each time it causes a dead end, so the search learns to tackle the constraints that keep
+ * failing as early as possible (the "dom/wdeg" heuristic from constraint programming). Weights can also be given up front.
+ *
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+class WeightedSelector implements ColumnSelector{
+    private final double[] weights;
+    private final boolean learn;
+
+    /**
+     * Constructor: creates a selector that learns its weights during the search
+     * @param columns: the number of columns in the exact cover grid
+     */
+    public WeightedSelector(int columns){
+        weights = new double[columns];
+        java.util.Arrays.fill(weights, 1);
+        learn = true;
+    }
+
+    /**
+     * Constructor: creates a selector with fixed weights
+     * @param w: the weight of each column of the exact cover grid; every weight must be positive
+     */
+    public WeightedSelector(double[] w){
+        weights = w.clone();
+        learn = false;
+    }
+
+    public ColumnNode select(ColumnNode header){
+        double min = Double.MAX_VALUE;
+        ColumnNode ret = null;
+        for (ColumnNode c = (ColumnNode)header.R; c != header; c = (ColumnNode)c.R){
+            if (c.size == 0){
+                return c;
+            }
+            double score = c.size / weights[c.index];
+            if (score < min){
+                min = score;
+                ret = c;
+            }
+        }
+        return ret;
+    }
+
+    public void conflict(ColumnNode c){
+        if (learn){
+            weights[c.index]++;
+        }
+    }
+}
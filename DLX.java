@@ -1,3 +1,4 @@
+import java.io.*;
 import java.util.*;
 
 /**
@@ -15,15 +16,34 @@ import java.util.*;
  * 
  * @author Vani Mohindra, Rafal Szymanski 
  */
-public class DLX {
+public class DLX implements ExactCoverSolver {
    
-   static final boolean verbose = true;
+   boolean verbose = true; // print every solution that search finds
    private ColumnNode header; // this is the root node
    private int solutions = 0;
    private SolutionHandler handler;
    private List<DancingNode> answer;
    SolutionsAnalyzer solanalyzer = new SolutionsAnalyzer(); // NEW ADDITION
    int [][] SUDOKU; // NEW ADDITION
+   private ColumnSelector selector = new MinSizeSelector();
+   private RowOrdering rowOrdering = new NaturalOrdering();
+   private DancingNode[][] rowBuffers; // rowBuffers[k] holds the ordered rows being tried at depth k
+   private long nodes = 0; // number of search nodes visited by the last call to getFirstSolution
+   private long nodeLimit; // node budget of the current run of getFirstSolution
+   private int restarts = 0; // number of restarts made by the last call to getFirstSolution
+   private int[][] first; // the solution found by getFirstSolution
+   private SearchCheckpoint progress; // state of the enumeration run by enumerate
+   private int[] positions; // positions[k] = position of the row being tried at depth k, in the order it was tried
+   private boolean resuming; // true while enumerate is walking back down to the node it was resumed from
+   private File checkpointFile;
+   private long checkpointInterval, nextCheckpoint;
+   private int openColumns; // number of columns not yet covered by search and modifiedSearch
+   private int hybridThreshold = 0; // search and modifiedSearch hand over to the bitboard solver below this many open columns
+   private final DancingNode[] cellRows = new DancingNode[729]; // cellRows[9*cell+v-1] = a node of the row for v in cell
+   private final int[] cellCandidates = new int[81]; // bit v set if value v is still possible in the cell
+   private final int[] rowFree = new int[9], colFree = new int[9], boxFree = new int[9]; // values still missing in each unit
+   private final int[] openCells = new int[81], placed = new int[81]; // the cells left to the bitboard solver, their values
+   private int openCellCount;
   
    /**
     * Given an exact cover board that is implemented with a 2D array, express that same
@@ -43,7 +63,7 @@ public class DLX {
       ArrayList<ColumnNode> columnNodes = new ArrayList<ColumnNode>();
 
       for(int i = 0; i < COLS; i++){
-          ColumnNode n = new ColumnNode(Integer.toString(i));
+          ColumnNode n = new ColumnNode(Integer.toString(i), i);
           columnNodes.add(n);
           headerNode = (ColumnNode) headerNode.linkRight(n);
       }
@@ -76,60 +96,250 @@ public class DLX {
    */
    private void search(int k){
       if (header.R == header){ // all the columns removed
-          if(verbose){
-              System.out.println("-----------------------------------------");
-              System.out.println("Solution #" + solutions + "\n");
-          }
-          handler.handleSolution(answer);
-          solanalyzer.addSolution(handler.parseBoard(answer));// NEW ADDITION
-          if(verbose){
-              System.out.println("-----------------------------------------");
-          }
-          solutions++;
+          recordSolution();
+      } else if (openColumns < hybridThreshold){
+          bitboardFinish(null);
       } else{
           ColumnNode c = selectColumnNodeHeuristic();
+          if (c.size == 0){ // dead end
+              selector.conflict(c);
+              return;
+          }
           c.cover();
+          openColumns--;
 
-          for(DancingNode r = c.D; r != c; r = r.D){
+          DancingNode[] rows = rowBuffer(k, c.size);
+          int n = rowOrdering.order(c, rows);
+          for(int i = 0; i < n; i++){
+              DancingNode r = rows[i];
               answer.add(r);
 
               for(DancingNode j = r.R; j != r; j = j.R){
                   j.C.cover();
+                  openColumns--;
               }
 
               search(k + 1);
 
-              r = answer.remove(answer.size() - 1);
-              c = r.C;
+              answer.remove(answer.size() - 1);
 
               for(DancingNode j = r.L; j != r; j = j.L){
                   j.C.uncover();
+                  openColumns++;
               }
           }
           c.uncover();
+          openColumns++;
+      }
+  }
+
+  /**
+   * Helper method for search. Reports the solution held in answer.
+   */
+  private void recordSolution(){
+      if(verbose){
+          System.out.println("-----------------------------------------");
+          System.out.println("Solution #" + solutions + "\n");
+          handler.handleSolution(answer);
+      }
+      solanalyzer.addSolution(handler.parseBoard(answer));// NEW ADDITION
+      if(verbose){
+          System.out.println("-----------------------------------------");
+      }
+      solutions++;
+  }
+
+  /**
+   * Helper method for search and modifiedSearch. Finishes the search below the current node with the bitboard solver. 
+   * The open part of the sudoku exact cover grid is read off the column lists: the rows left in each open cell column
+   * give the values still possible in that cell, and the open row, column and box columns give the values still missing
+   * in each unit. The bitboard solver fills in the open cells, always taking the cell with the fewest possible values,
+   * and hands every solution back by adding the nodes of its rows to answer.
+   * 
+   * @param found: where modifiedSearch collects solutions, or null to report them like search does
+   */
+  private void bitboardFinish(ArrayList <int [][]> found){
+      openCellCount = 0;
+      Arrays.fill(rowFree, 0);
+      Arrays.fill(colFree, 0);
+      Arrays.fill(boxFree, 0);
+      for(DancingNode col = header.R; col != header; col = col.R){
+          int x = col.C.index;
+          if (x < 81){
+              int mask = 0;
+              for(DancingNode n = col.D; n != col; n = n.D){
+                  int v = (n.R.C.index - 81) % 9 + 1; // the node right of a cell node is in the row-digit column
+                  mask |= 1 << v;
+                  cellRows[9 * x + v - 1] = n;
+              }
+              cellCandidates[x] = mask;
+              openCells[openCellCount++] = x;
+          } else if (x < 162){
+              rowFree[(x - 81) / 9] |= 1 << ((x - 81) % 9 + 1);
+          } else if (x < 243){
+              colFree[(x - 162) / 9] |= 1 << ((x - 162) % 9 + 1);
+          } else{
+              boxFree[(x - 243) / 9] |= 1 << ((x - 243) % 9 + 1);
+          }
+      }
+      bitboardSearch(0, found);
+  }
+
+  /**
+   * Helper method for bitboardFinish. Fills in the open cells from position d on.
+   */
+  private void bitboardSearch(int d, ArrayList <int [][]> found){
+      if (d == openCellCount){
+          for(int i = 0; i < d; i++){
+              answer.add(cellRows[9 * openCells[i] + placed[i] - 1]);
+          }
+          if (found == null){
+              recordSolution();
+          } else{
+              found.add(handler.parseBoard(answer));
+          }
+          for(int i = 0; i < d; i++){
+              answer.remove(answer.size() - 1);
+          }
+          return;
       }
+
+      int best = -1, bestMask = 0, bestCount = 10;
+      for(int i = d; i < openCellCount; i++){
+          int cell = openCells[i];
+          int r = cell / 9, c = cell % 9;
+          int mask = cellCandidates[cell] & rowFree[r] & colFree[c] & boxFree[3 * (r / 3) + c / 3];
+          int count = Integer.bitCount(mask);
+          if (count < bestCount){
+              if (count == 0){ // dead end
+                  return;
+              }
+              best = i;
+              bestMask = mask;
+              bestCount = count;
+          }
+      }
+      int cell = openCells[best];
+      openCells[best] = openCells[d];
+      openCells[d] = cell;
+      int r = cell / 9, c = cell % 9, b = 3 * (r / 3) + c / 3;
+      while (bestMask != 0){
+          int bit = bestMask & -bestMask;
+          bestMask ^= bit;
+          placed[d] = Integer.numberOfTrailingZeros(bit);
+          rowFree[r] ^= bit;
+          colFree[c] ^= bit;
+          boxFree[b] ^= bit;
+          bitboardSearch(d + 1, found);
+          rowFree[r] ^= bit;
+          colFree[c] ^= bit;
+          boxFree[b] ^= bit;
+      }
+      openCells[d] = openCells[best];
+      openCells[best] = cell;
   }
    
    /**
-    * Helper method for search. Determines which constraint to satisfy during Step #2 of Algorithm X by picking the
-    * column that has the least number of nodes (i.e. the constraint which is satisfied by the least number of
-    * partial solutions).
+    * Helper method for search. Determines which constraint to satisfy during Step #2 of Algorithm X using the column 
+    * selection strategy. By default this picks the column that has the least number of nodes (i.e. the constraint which
+    * is satisfied by the least number of partial solutions).
     * 
     * @return the column header of the column whose constraint is to be satisfied
     */
-   private ColumnNode selectColumnNodeHeuristic() // return column node with least number of 1s in its column
+   private ColumnNode selectColumnNodeHeuristic()
    {
-      int min = Integer.MAX_VALUE;
-      ColumnNode ret = null;
-      for (ColumnNode c = (ColumnNode)header.R; c!=header; c=(ColumnNode)c.R)
-      {
-         if (c.size<min)
-         {
-            min=c.size;
-            ret=c;
+      return selector.select(header);
+   }
+   
+   /**
+    * Helper method for search. Returns the buffer that holds the rows tried at depth k, growing it if it cannot hold
+    * the given number of rows. 
+    */
+   private DancingNode[] rowBuffer(int k, int size)
+   {
+      if (k >= rowBuffers.length){
+         rowBuffers = Arrays.copyOf(rowBuffers, 2 * k + 1);
+      }
+      if (rowBuffers[k] == null || rowBuffers[k].length < size){
+         rowBuffers[k] = new DancingNode[size];
+      }
+      return rowBuffers[k];
+   }
+   
+   /**
+    * Samples a single random root-to-leaf path through the search tree, as in Donald Knuth's estimator of the size of a 
+    * backtrack tree. At every level the column is chosen with the usual heuristic and one of its rows is picked at random; 
+    * the weight of the path is the product of 1/(probability of each pick), so that the average weight over many probes is 
+    * an unbiased estimate of the number of solutions. Rows are either picked uniformly (plain Knuth estimator) or, for 
+    * importance sampling, in proportion to the smallest column that the row would leave behind, which steers probes away
+    * from rows that quickly run into dead ends. The matrix is restored before returning.  
+    * 
+    * @param rnd: the source of randomness
+    * @param importance: true to use importance sampling, false to pick rows uniformly
+    * @return the weight of the path (0 if it ended in a dead end) and the solution it reached, if any
+    */
+   SolutionEstimator.Sample probe(Random rnd, boolean importance){
+      ArrayList<DancingNode> path = new ArrayList<DancingNode>();
+      double weight = 1;
+      int[][] leaf = null;
+      while (true){
+         if (header.R == header){
+            leaf = handler.parseBoard(path);
+            break;
          }
+         ColumnNode c = selectColumnNodeHeuristic();
+         if (c.size == 0){
+            weight = 0;
+            break;
+         }
+         DancingNode r = c.D;
+         if (importance){
+            double total = 0;
+            double[] scores = new double[c.size];
+            int i = 0;
+            for(DancingNode n = c.D; n != c; n = n.D, i++){
+               scores[i] = rowScore(n);
+               total += scores[i];
+            }
+            double x = rnd.nextDouble() * total;
+            i = 0;
+            for(r = c.D; r.D != c && x >= scores[i]; r = r.D, i++){
+               x -= scores[i];
+            }
+            weight *= total / scores[i];
+         } else{
+            int pick = rnd.nextInt(c.size);
+            for(int i = 0; i < pick; i++){
+               r = r.D;
+            }
+            weight *= c.size;
+         }
+         c.cover();
+         for(DancingNode j = r.R; j != r; j = j.R){
+            j.C.cover();
+         }
+         path.add(r);
       }
-      return ret;
+      for(int i = path.size() - 1; i >= 0; i--){
+         DancingNode r = path.get(i);
+         for(DancingNode j = r.L; j != r; j = j.L){
+            j.C.uncover();
+         }
+         r.C.uncover();
+      }
+      return new SolutionEstimator.Sample(weight, leaf);
+   }
+   
+   /**
+    * Helper method for probe. Scores a row by the size of the smallest other column it belongs to, i.e. by how many 
+    * alternatives are left for the most constrained of the other constraints that the row satisfies.
+    */
+   private double rowScore(DancingNode r){
+      int min = Integer.MAX_VALUE;
+      for(DancingNode j = r.R; j != r; j = j.R){
+         min = Math.min(min, j.C.size);
+      }
+      return min == Integer.MAX_VALUE ? 1 : min;
    }
    
    /**
@@ -149,55 +359,302 @@ public class DLX {
   public DLX(int[][] grid, SolutionHandler h){
       header = makeDLXBoard(grid);
       handler = h;
+      rowBuffers = new DancingNode[grid[0].length + 1][];
   }
   
   public DLX(int[][] grid, SolutionHandler h, int [][] sudokuBoard){
-     header = makeDLXBoard(grid);
-     handler = h;
+     this(grid, h);
      SUDOKU = sudokuBoard;
  }
+  
+  /**
+   * Sets the strategy that chooses which column to cover next. 
+   * @param s: the column selection strategy
+   */
+  public void setColumnSelector(ColumnSelector s){
+     selector = s;
+  }
+  
+  /**
+   * Sets the hybrid threshold: once fewer than this many columns are open, search and modifiedSearch stop dancing and
+   * finish the rest of the board with a bitboard solver that keeps the values still missing in each row, column and box
+   * as bit masks. Near the leaves the remaining work is small, and the solver avoids the pointer traffic of covering and 
+   * uncovering columns and the scans for the shortest column. It only works for the 324-column layout of SudokuDLX. 
+   * 0 (the default) turns it off; see Benchmark for how the threshold affects the running time.
+   * @param columns: the number of open columns below which the bitboard solver takes over
+   */
+  public void setHybridThreshold(int columns){
+     if (columns > 0 && header.size != 324){
+        throw new IllegalArgumentException("the hybrid search needs the sudoku exact cover grid");
+     }
+     hybridThreshold = columns;
+  }
+  
+  /**
+   * Sets the strategy that decides in which order the rows of the chosen column are tried.
+   * @param o: the row ordering strategy
+   */
+  public void setRowOrdering(RowOrdering o){
+     rowOrdering = o;
+  }
 
   public void runSolver(){
+      analyze();
+      solanalyzer.analyzeSolutions(); // NEW ADDITION
+      solanalyzer.smartGreedy(solanalyzer.getInfoBank(), SUDOKU);
+  }
+  
+  /**
+   * Finds every solution and hands it to the SolutionsAnalyzer, which publishes snapshots of its progress while the search
+   * runs (see SolutionsAnalyzer.getSnapshot).
+   * @return the analyzer, holding every solution
+   */
+  public SolutionsAnalyzer analyze(){
       solutions = 0;
       answer = new LinkedList<DancingNode>();
+      openColumns = header.size;
       search(0);
-      solanalyzer.analyzeSolutions(); // NEW ADDITION
-      solanalyzer.smartGreedy(solanalyzer.getInfoBank(), SUDOKU);
+      solanalyzer.finish();
+      return solanalyzer;
+  }
+  
+  /**
+   * @return the analyzer that receives the solutions found by runSolver and analyze
+   */
+  public SolutionsAnalyzer getAnalyzer(){
+      return solanalyzer;
   }
   
   public ArrayList <int [][]> getSolutions()
   {
      solutions = 0;
      answer = new LinkedList<DancingNode>();
-     return modifiedSearch(0);
+     openColumns = header.size;
+     ArrayList<int [][]> found = new ArrayList <int [][]> ();
+     modifiedSearch(0, found);
+     return found;
   }
   
-  private ArrayList <int [][]> modifiedSearch(int k){
-     ArrayList<int [][]> solutions = new ArrayList <int [][]> ();
+  private void modifiedSearch(int k, ArrayList <int [][]> found){
      if (header.R == header){ 
-         solutions.add(handler.parseBoard(answer));
+         found.add(handler.parseBoard(answer));
+     } else if (openColumns < hybridThreshold){
+         bitboardFinish(found);
      } else{
          ColumnNode c = selectColumnNodeHeuristic();
+         if (c.size == 0){
+             selector.conflict(c);
+             return;
+         }
          c.cover();
+         openColumns--;
 
-         for(DancingNode r = c.D; r != c; r = r.D){
+         DancingNode[] rows = rowBuffer(k, c.size);
+         int n = rowOrdering.order(c, rows);
+         for(int i = 0; i < n; i++){
+             DancingNode r = rows[i];
              answer.add(r);
 
              for(DancingNode j = r.R; j != r; j = j.R){
                  j.C.cover();
+                 openColumns--;
              }
 
-             modifiedSearch(k + 1);
+             modifiedSearch(k + 1, found);
 
-             r = answer.remove(answer.size() - 1);
-             c = r.C;
+             answer.remove(answer.size() - 1);
 
              for(DancingNode j = r.L; j != r; j = j.L){
                  j.C.uncover();
+                 openColumns++;
              }
          }
          c.uncover();
+         openColumns++;
      }
-     return solutions;
  }
+  
+  /**
+   * Searches for a single solution, restarting the search from scratch whenever a run exceeds the node budget given by 
+   * the restart policy. Restarts pay off with a randomized row ordering, where a fresh run avoids the bad early choices 
+   * of the previous one.
+   * 
+   * @param policy: the restart policy
+   * @return the first solution found, or null if there is none
+   */
+  public int[][] getFirstSolution(RestartPolicy policy)
+  {
+     answer = new LinkedList<DancingNode>();
+     nodes = 0;
+     restarts = 0;
+     while (true){
+        nodeLimit = nodes + policy.limit(restarts);
+        if (nodeLimit < nodes){ // overflow
+           nodeLimit = Long.MAX_VALUE;
+        }
+        first = null;
+        if (firstSearch(0) && first == null){ // run was cut off
+           restarts++;
+        } else{
+           return first;
+        }
+     }
+  }
+  
+  /**
+   * @return the number of search nodes visited by the last call to getFirstSolution, over all runs
+   */
+  public long getNodeCount(){
+     return nodes;
+  }
+  
+  /**
+   * @return the number of restarts made by the last call to getFirstSolution
+   */
+  public int getRestartCount(){
+     return restarts;
+  }
+  
+  /**
+   * Helper method for getFirstSolution. Recursively searches until a solution is found or the node budget runs out.
+   * 
+   * @param k: indicates how many levels deep the recursive stack is
+   * @return true if the search should stop, either because a solution was found or because the budget ran out
+   */
+  private boolean firstSearch(int k){
+     if (header.R == header){
+        first = handler.parseBoard(answer);
+        return true;
+     }
+     if (++nodes > nodeLimit){
+        return true;
+     }
+     ColumnNode c = selectColumnNodeHeuristic();
+     if (c.size == 0){
+        selector.conflict(c);
+        return false;
+     }
+     c.cover();
+
+     boolean stop = false;
+     DancingNode[] rows = rowBuffer(k, c.size);
+     int n = rowOrdering.order(c, rows);
+     for(int i = 0; i < n && !stop; i++){
+        DancingNode r = rows[i];
+        answer.add(r);
+
+        for(DancingNode j = r.R; j != r; j = j.R){
+           j.C.cover();
+        }
+
+        stop = firstSearch(k + 1);
+
+        answer.remove(answer.size() - 1);
+
+        for(DancingNode j = r.L; j != r; j = j.L){
+           j.C.uncover();
+        }
+     }
+     c.uncover();
+     return stop;
+  }
+  
+  /**
+   * Enumerates the solutions without storing them, counting them and tallying the values of each square into the given
+   * checkpoint. Every intervalMillis milliseconds the current search path is written to the checkpoint file, and an 
+   * enumeration can be resumed from a checkpoint read back from such a file: the search walks straight back down the 
+   * saved path, skipping the rows to its left, and carries on from there. If the checkpoint belongs to a shard, only that
+   * shard of the search space is enumerated. Resuming and sharding both rely on the search visiting the tree in the same 
+   * order every time, so they must not be combined with randomized or learning strategies. 
+   * 
+   * @param state: a new checkpoint to start an enumeration, or a checkpoint read from a file to resume one
+   * @param file: the checkpoint file, or null for no checkpoints
+   * @param intervalMillis: the time between checkpoints in milliseconds
+   * @return the checkpoint, which is finished once this method returns
+   */
+  public SearchCheckpoint enumerate(SearchCheckpoint state, File file, long intervalMillis) throws IOException
+  {
+     if (state.finished){
+        return state;
+     }
+     progress = state;
+     checkpointFile = file;
+     checkpointInterval = intervalMillis;
+     nextCheckpoint = System.currentTimeMillis() + intervalMillis;
+     positions = new int[rowBuffers.length];
+     resuming = state.path.length > 0;
+     answer = new LinkedList<DancingNode>();
+     try{
+        enumerateSearch(0, 0);
+     } catch (UncheckedIOException e){
+        throw e.getCause();
+     }
+     state.path = new int[0];
+     state.finished = true;
+     if (file != null){
+        state.write(file);
+     }
+     return state;
+  }
+  
+  /**
+   * Helper method for enumerate. Recursively counts the solutions below the current node.
+   * 
+   * @param k: indicates how many levels deep the recursive stack is
+   * @param b: the number of real choices (between two or more rows) on the way to this node, which decides the shards
+   */
+  private void enumerateSearch(int k, int b){
+     if (resuming && k == progress.path.length){ // back at the node where the checkpoint was taken
+        resuming = false;
+     }
+     if (!resuming && checkpointFile != null && System.currentTimeMillis() >= nextCheckpoint){
+        progress.path = Arrays.copyOf(positions, k);
+        try{
+           progress.write(checkpointFile);
+        } catch (IOException e){
+           throw new UncheckedIOException(e);
+        }
+        nextCheckpoint = System.currentTimeMillis() + checkpointInterval;
+     }
+     if (header.R == header){
+        if (b >= progress.shardDepth || progress.owns(positions, k)){
+           progress.addSolution(handler.parseBoard(answer));
+        }
+        return;
+     }
+     
+     ColumnNode c = selectColumnNodeHeuristic();
+     if (c.size == 0){
+        selector.conflict(c);
+        return;
+     }
+     c.cover();
+
+     DancingNode[] rows = rowBuffer(k, c.size);
+     int n = rowOrdering.order(c, rows);
+     if (k >= positions.length){
+        positions = Arrays.copyOf(positions, 2 * k + 1);
+     }
+     for(int i = resuming ? progress.path[k] : 0; i < n; i++){
+        DancingNode r = rows[i];
+        positions[k] = i;
+        if (n > 1 && b + 1 == progress.shardDepth && !progress.owns(positions, k + 1)){ // another shard's subtree
+           continue;
+        }
+        answer.add(r);
+
+        for(DancingNode j = r.R; j != r; j = j.R){
+           j.C.cover();
+        }
+
+        enumerateSearch(k + 1, n > 1 ? b + 1 : b);
+
+        answer.remove(answer.size() - 1);
+
+        for(DancingNode j = r.L; j != r; j = j.L){
+           j.C.uncover();
+        }
+     }
+     c.uncover();
+  }
 }
@@ -0,0 +1,14 @@
+import java.util.*;
+
+/**
+ * Interface for an engine that solves the exact cover problem of a sudoku board. DLX is the general-purpose engine;
+ * BitsetDLX is an alternative for small exact cover grids. SudokuDLX.makeSolver decides which engine handles a board.
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+public interface ExactCoverSolver {
+    /**
+     * Finds every solution of the exact cover problem.
+     * @return all solutions, each as a sudoku board
+     */
+    ArrayList<int[][]> getSolutions();
+}
@@ -0,0 +1,388 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * LookaheadPlanner looks several reveals ahead to decide which square of a partially solved sudoku should be revealed next.
+ * Instead of re-solving the puzzle for every candidate square, it works on the solutions that are already known: revealing
+ * square [r][c] splits the solutions into one group per possible value, and the group that matches the revealed value becomes
+ * the new set of solutions. Every solution is assumed to be equally likely, so a group is reached with probability
+ * (group size)/(number of solutions). The planner recursively evaluates these splits up to a configurable depth and picks
+ * the square that minimizes one of two objectives:
+ *    1. EXPECTED_REVEALS: the expected number of reveals needed until only one solution is left.
+ *    2. RESIDUAL_ENTROPY: the expected average entropy of the board once depth squares have been revealed.
+ *
+ * Boards that can be reached in more than one way (revealing A and then B, or B and then A) are only evaluated once per call
+ * to plan thanks to a transposition table keyed by the known squares of the board. The candidate squares at the top of the
+ * search are evaluated in parallel. Whenever the depth or time budget runs out before a board is fully resolved, the planner
+ * falls back to an estimate of its cost together with bounds on it, and once the time budget has run out, no further
+ * squares are expanded at any level: the best plan found so far is returned, marked as truncated. Squares are ranked by the estimated expected cost, and
+ * every plan reports either the exact expected cost of the chosen strategy or an interval that contains it.
+ *
+ * @author Vani Mohindra
+ */
+public class LookaheadPlanner {
+
+   /**
+    * The quantity that the planner minimizes.
+    */
+   public enum Objective { EXPECTED_REVEALS, RESIDUAL_ENTROPY }
+
+   private static final double EPSILON = 0.000000001;
+   private static final double LOG2_9 = Math.log(9)/Math.log(2);
+
+   private final int depth;
+   private final long budgetMillis;
+   private final Objective objective;
+   private final int threads;
+   private final ConcurrentHashMap<String, Plan> table = new ConcurrentHashMap<String, Plan>(); // transposition table
+   private long deadline;
+
+   /**
+    * The result of planning: the square to reveal next together with bounds on the expected cost of the strategy that
+    * starts by revealing it. If the board already has a unique solution, the square is [-1][-1] and the cost is 0.
+    */
+   public static class Plan {
+      public final int row, col;
+      public final double expected; // estimated expected cost of this strategy, exact if isExact()
+      public final double lower, upper; // bounds on the expected cost of this strategy
+      final int depth; // number of reveals that were searched to produce this plan
+      final boolean truncated; // true if the time budget ran out somewhere below this plan
+
+      Plan (int r, int c, double est, double lo, double hi, int d, boolean cut)
+      {
+         row=r; col=c; expected=est; lower=lo; upper=hi; depth=d; truncated=cut;
+      }
+
+      /**
+       * @return true if the search resolved the cost exactly rather than only bounding it
+       */
+      public boolean isExact ()
+      {
+         return upper-lower < EPSILON;
+      }
+
+      public String toString ()
+      {
+         String cost = isExact() ? String.format("%.4f", lower) : String.format("about %.4f, within [%.4f, %.4f]", expected, lower, upper);
+         return "["+row+"]"+"["+col+"] (expected cost "+cost+")";
+      }
+   }
+
+   /**
+    * Constructor: creates a planner that minimizes the expected number of reveals and uses every available processor.
+    * @param depth: the number of reveals to look ahead
+    * @param budgetMillis: the time budget in milliseconds for a single call to plan
+    */
+   public LookaheadPlanner (int depth, long budgetMillis)
+   {
+      this(depth, budgetMillis, Objective.EXPECTED_REVEALS, Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * Constructor: creates a planner.
+    * @param depth: the number of reveals to look ahead
+    * @param budgetMillis: the time budget in milliseconds for a single call to plan
+    * @param objective: the quantity to minimize
+    * @param threads: the number of threads that evaluate the candidate squares; with 1, plan runs on the calling thread
+    */
+   public LookaheadPlanner (int depth, long budgetMillis, Objective objective, int threads)
+   {
+      if (depth<1) throw new IllegalArgumentException("depth must be at least 1");
+      this.depth=depth;
+      this.budgetMillis=budgetMillis;
+      this.objective=objective;
+      this.threads=Math.max(1, threads);
+   }
+
+   /**
+    * Picks the square of the puzzle that should be revealed next.
+    *
+    * @param puzzle: the sudoku board, with 0 for unknown squares
+    * @param solutions: all solutions of the puzzle
+    * @return the plan for the best square found within the depth and time budget
+    */
+   public Plan plan (int [][] puzzle, List<int [][]> solutions)
+   {
+      deadline = System.currentTimeMillis()+budgetMillis;
+      table.clear(); // the table only holds plans of this call, since their depths are relative to its depth
+      if (solutions.size()<=1) return new Plan(-1,-1,0,0,0,depth,false);
+      ArrayList<int []> cells = uncertainSquares(solutions);
+
+      // once the deadline has passed, no further candidate square is expanded, except the first one so that there is a plan
+      if (threads==1) // plan on the calling thread, so that its CPU time is the cost of planning
+      {
+         Plan best = null;
+         boolean cut = false;
+         for (int [] cell : cells)
+         {
+            if (best!=null && System.currentTimeMillis()>deadline)
+            {
+               cut = true;
+               break;
+            }
+            Plan p = expand(puzzle, solutions, cell[0], cell[1], depth);
+            cut |= p.truncated;
+            if (best==null || better(p, best)) best=p;
+         }
+         return cut ? truncated(best) : best;
+      }
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      try {
+         ArrayList<Future<Plan>> candidates = new ArrayList<Future<Plan>>();
+         for (int [] cell : cells)
+         {
+            boolean first = candidates.isEmpty();
+            candidates.add(pool.submit(() -> (first || System.currentTimeMillis()<=deadline) ? expand(puzzle, solutions, cell[0], cell[1], depth) : null));
+         }
+         Plan best = null;
+         boolean cut = false;
+         for (Future<Plan> f : candidates)
+         {
+            Plan p = f.get();
+            if (p==null)
+            {
+               cut = true;
+               continue;
+            }
+            cut |= p.truncated;
+            if (best==null || better(p, best)) best=p;
+         }
+         return cut ? truncated(best) : best;
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("planning was interrupted", e);
+      } catch (ExecutionException e) {
+         throw new IllegalStateException("planning failed", e.getCause());
+      } finally {
+         pool.shutdownNow();
+      }
+   }
+
+   /**
+    * Evaluates the best strategy for a board with the given remaining depth, consulting the transposition table first.
+    *
+    * @param known: the known squares of the board
+    * @param sols: the solutions that are consistent with the known squares
+    * @param d: the number of reveals left to search
+    * @return the best plan for this board
+    */
+   private Plan evaluate (int [][] known, List<int [][]> sols, int d)
+   {
+      if (sols.size()<=1) return new Plan(-1,-1,0,0,0,d,false);
+
+      String key = key(known);
+      Plan cached = table.get(key);
+      if (cached!=null && reusable(cached, d)) return cached;
+
+      Plan best = null;
+      if (d==0 || System.currentTimeMillis()>deadline)
+      {
+         best = bound(sols, d, d>0);
+      } else {
+         boolean cut = false;
+         for (int [] cell : uncertainSquares(sols))
+         {
+            if (best!=null && System.currentTimeMillis()>deadline)
+            {
+               cut = true;
+               break;
+            }
+            Plan p = expand(known, sols, cell[0], cell[1], d);
+            cut |= p.truncated;
+            if (best==null || better(p, best)) best=p;
+         }
+         if (cut) best = truncated(best);
+      }
+
+      // a plan cut short by the deadline is not the result of a full search to depth d, so it is never reused
+      if (!best.truncated)
+      {
+         table.merge(key, best, (a, b) -> (b.depth>a.depth || (b.depth==a.depth && b.upper-b.lower < a.upper-a.lower)) ? b : a);
+      }
+      return best;
+   }
+
+   /**
+    * Evaluates the strategy that reveals square [r][c] first and then continues optimally.
+    */
+   private Plan expand (int [][] known, List<int [][]> sols, int r, int c, int d)
+   {
+      List<List<int [][]>> groups = new ArrayList<List<int [][]>>();
+      for (int v=0; v<=9; v++) groups.add(new ArrayList<int [][]>());
+      for (int [][] s : sols) groups.get(s[r][c]).add(s);
+
+      double expected = 0, lower = 0, upper = 0;
+      boolean cut = false;
+      for (int v=1; v<=9; v++)
+      {
+         if (groups.get(v).isEmpty()) continue;
+         int [][] next = copy(known);
+         next[r][c]=v;
+         Plan child = evaluate(next, groups.get(v), d-1);
+         double weight = (double)groups.get(v).size()/sols.size();
+         expected += weight*child.expected;
+         lower += weight*child.lower;
+         upper += weight*child.upper;
+         cut |= child.truncated;
+      }
+      if (objective==Objective.EXPECTED_REVEALS)
+      {
+         expected++;
+         lower++;
+         upper++;
+      }
+      return new Plan(r, c, expected, lower, upper, d, cut);
+   }
+
+   /**
+    * Estimates and bounds the cost of a board that will not be searched any further.
+    * Expected reveals: every reveal splits the solutions into at most 9 groups, so at least log9(number of solutions)
+    * reveals are needed on average. Revealing every uncertain square always leaves a unique solution, and so does revealing
+    * one fewer square than there are solutions, since every reveal of an uncertain square rules out at least one solution.
+    * The estimate assumes that every reveal gains as much information as the most informative square does now: the log2(n)
+    * bits that identify one of n solutions, divided by the largest entropy of the value of a square, clamped to the bounds.
+    * The upper bound and the estimate both come from a single count of the values of every square.
+    * Residual entropy: revealing squares never increases the entropy, so it lies between 0 and the current entropy. It is
+    * exact when the depth has been used up; otherwise the current entropy serves as the estimate.
+    * @param cut: true if the search stopped here because the time budget ran out
+    */
+   private Plan bound (List<int [][]> sols, int d, boolean cut)
+   {
+      if (objective==Objective.EXPECTED_REVEALS)
+      {
+         int n = sols.size();
+         int [] counts = valueCounts(sols);
+         int uncertain = 0;
+         double maxEntropy = 0; // the largest entropy, in bits, of the value of a square
+         for (int i=0; i<810; i+=10)
+         {
+            double h = 0;
+            for (int v=1; v<=9; v++)
+            {
+               if (counts[i+v]>0 && counts[i+v]<n) h -= (double)counts[i+v]/n*Math.log((double)counts[i+v]/n)/Math.log(2);
+            }
+            if (h>0) uncertain++;
+            maxEntropy = Math.max(maxEntropy, h);
+         }
+         double lower = Math.max(1, Math.log(n)/Math.log(2)/LOG2_9);
+         double upper = Math.min(uncertain, n-1);
+         double expected = Math.min(upper, Math.max(lower, Math.log(n)/Math.log(2)/maxEntropy));
+         return new Plan(-1, -1, expected, lower, upper, d, cut);
+      }
+      double entropy = avgEntropy(sols);
+      return new Plan(-1, -1, entropy, d==0 ? entropy : 0, entropy, d, cut);
+   }
+
+   /**
+    * @return the same plan, marked as cut short by the deadline
+    */
+   private static Plan truncated (Plan p)
+   {
+      return p.truncated ? p : new Plan(p.row, p.col, p.expected, p.lower, p.upper, p.depth, true);
+   }
+
+   /**
+    * A plan is better than another one if its estimated expected cost is lower, with ties broken by the worst case.
+    */
+   private boolean better (Plan a, Plan b)
+   {
+      if (a.expected < b.expected-EPSILON) return true;
+      return Math.abs(a.expected-b.expected)<EPSILON && a.upper < b.upper-EPSILON;
+   }
+
+   /**
+    * A cached plan can be reused if it was searched at least as deeply. The residual entropy depends on how many reveals
+    * are left, so for that objective the depth has to match exactly.
+    */
+   private boolean reusable (Plan cached, int d)
+   {
+      if (cached.depth==d) return true;
+      return objective==Objective.EXPECTED_REVEALS && (cached.isExact() || cached.depth>d);
+   }
+
+   /**
+    * @return the [r][c] pairs of the squares that take more than one value across the given solutions
+    */
+   static ArrayList<int []> uncertainSquares (List<int [][]> sols)
+   {
+      int [][] masks = valueMasks(sols);
+      ArrayList<int []> squares = new ArrayList<int []>();
+      for (int i=0; i<9; i++)
+      {
+         for (int j=0; j<9; j++)
+         {
+            if (Integer.bitCount(masks[i][j])>1) squares.add(new int [] {i, j});
+         }
+      }
+      return squares;
+   }
+
+   /**
+    * @return the average over all squares of log2 of the number of values the square takes across the given solutions
+    */
+   static double avgEntropy (List<int [][]> sols)
+   {
+      int [][] masks = valueMasks(sols);
+      double sum = 0;
+      for (int i=0; i<9; i++)
+      {
+         for (int j=0; j<9; j++)
+         {
+            sum += Math.log(Integer.bitCount(masks[i][j]))/Math.log(2);
+         }
+      }
+      return sum/81;
+   }
+
+   private static int [][] valueMasks (List<int [][]> sols)
+   {
+      int [][] masks = new int [9][9];
+      for (int [][] s : sols)
+      {
+         for (int i=0; i<9; i++)
+         {
+            for (int j=0; j<9; j++)
+            {
+               masks[i][j] |= 1<<s[i][j];
+            }
+         }
+      }
+      return masks;
+   }
+
+   /**
+    * @return the count of each value of each square across the given solutions, laid out as counts[10*(9*i+j)+v]
+    */
+   private static int [] valueCounts (List<int [][]> sols)
+   {
+      int [] counts = new int [810];
+      for (int [][] s : sols)
+      {
+         for (int i=0; i<9; i++)
+         {
+            for (int j=0; j<9; j++) counts[90*i+10*j+s[i][j]]++;
+         }
+      }
+      return counts;
+   }
+
+   private static String key (int [][] known)
+   {
+      char [] key = new char [81];
+      for (int i=0; i<9; i++)
+      {
+         for (int j=0; j<9; j++)
+         {
+            key[9*i+j] = (char)('0'+known[i][j]);
+         }
+      }
+      return new String(key);
+   }
+
+   private static int [][] copy (int [][] board)
+   {
+      int [][] ret = new int [board.length][];
+      for (int i=0; i<board.length; i++) ret[i] = board[i].clone();
+      return ret;
+   }
+}
@@ -0,0 +1,113 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * MutualInformation measures how much knowing the value of one square tells about the value of another. Treating every
+ * solution as equally likely, each square is a random variable, and the mutual information between squares a and b is
+ *    I(a;b) = sum over values x, y of p(x,y) * log2( p(x,y) / (p(x) p(y)) )
+ * where p(x,y) is the fraction of solutions in which a holds x and b holds y. I(a;b) is 0 when the two squares are
+ * independent and equals the entropy of a when b determines a. The diagonal I(a;a) is the entropy of square a.
+ *
+ * The joint value counts of all 81*80/2 pairs of squares are gathered in primitive int tables. The solutions are stored
+ * column by column and processed in chunks small enough to stay in cache, with each chunk read once for all pairs. Chunks
+ * are counted in parallel into one table per worker thread, and the tables are added up at the end. Squares that hold the
+ * same value in every solution carry no information and are skipped.
+ *
+ * @author Vani Mohindra
+ */
+public class MutualInformation {
+
+   private static final int CHUNK = 4096; // solutions per chunk
+
+   /**
+    * Computes the 81x81 matrix of pairwise mutual information between the squares, in bits.
+    * @param solutions: all solutions of a sudoku puzzle
+    * @return mi[a][b] = I(a;b), where square a is [a/9][a%9]
+    */
+   public static double [][] compute (List<int [][]> solutions)
+   {
+      return compute(ConditionalAnalysis.columns(solutions), solutions.size());
+   }
+
+   /**
+    * Computes the 81x81 matrix of pairwise mutual information from solutions stored column by column.
+    * @param columns: columns[cell][s] = value of square cell in solution s
+    * @param n: the number of solutions
+    * @return mi[a][b] = I(a;b)
+    */
+   static double [][] compute (byte [][] columns, int n)
+   {
+      double [][] mi = new double [81][81];
+      if (n==0) return mi;
+
+      int [][] marginal = new int [81][10];
+      for (int cell=0; cell<81; cell++)
+      {
+         for (int s=0; s<n; s++) marginal[cell][columns[cell][s]]++;
+      }
+      int [] uncertain = IntStream.range(0, 81).filter(cell -> marginal[cell][columns[cell][0]]<n).toArray();
+      int m = uncertain.length;
+
+      // joint[pair*81 + 9*(x-1) + (y-1)] for pairs (uncertain[a], uncertain[b]) with a < b, numbered row by row
+      int chunks = (n+CHUNK-1)/CHUNK;
+      int [] joint = IntStream.range(0, chunks).parallel().collect(
+            () -> new int [m*(m-1)/2*81],
+            (table, chunk) -> countChunk(columns, uncertain, chunk*CHUNK, Math.min(n, (chunk+1)*CHUNK), table),
+            (a, b) -> { for (int i=0; i<a.length; i++) a[i] += b[i]; });
+
+      double log2n = Math.log(n)/Math.log(2);
+      for (int cell=0; cell<81; cell++)
+      {
+         double h = 0;
+         for (int x=1; x<=9; x++)
+         {
+            int c = marginal[cell][x];
+            if (c>0) h -= (double)c/n*(Math.log(c)/Math.log(2)-log2n);
+         }
+         mi[cell][cell] = h;
+      }
+      int pair = 0;
+      for (int a=0; a<m; a++)
+      {
+         for (int b=a+1; b<m; b++, pair++)
+         {
+            int [] ma = marginal[uncertain[a]], mb = marginal[uncertain[b]];
+            double sum = 0;
+            for (int x=1; x<=9; x++)
+            {
+               if (ma[x]==0) continue;
+               for (int y=1; y<=9; y++)
+               {
+                  int c = joint[pair*81+9*(x-1)+(y-1)];
+                  if (c==0) continue;
+                  sum += c*Math.log((double)c*n/((double)ma[x]*mb[y]));
+               }
+            }
+            mi[uncertain[a]][uncertain[b]] = mi[uncertain[b]][uncertain[a]] = Math.max(sum/n/Math.log(2), 0);
+         }
+      }
+      return mi;
+   }
+
+   /**
+    * Helper method for compute. Adds the joint value counts of solutions from to to-1 into the table, one pair at a time,
+    * so that each pair walks two short arrays in order.
+    */
+   private static void countChunk (byte [][] columns, int [] uncertain, int from, int to, int [] table)
+   {
+      int pair = 0;
+      for (int a=0; a<uncertain.length; a++)
+      {
+         byte [] ca = columns[uncertain[a]];
+         for (int b=a+1; b<uncertain.length; b++, pair++)
+         {
+            byte [] cb = columns[uncertain[b]];
+            int base = pair*81-10;
+            for (int s=from; s<to; s++)
+            {
+               table[base+9*ca[s]+cb[s]]++;
+            }
+         }
+      }
+   }
+}
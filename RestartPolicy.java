@@ -0,0 +1,59 @@
+/**
+ * Interface for the restart policy used when searching for a first solution. Each run of the search is cut off once it has
+ * visited as many nodes as the policy allows, after which the search starts over from the beginning. Restarts only help
+ * if successive runs differ, e.g. because the rows are tried in a random order.
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+public interface RestartPolicy {
+    /**
+     * @param run: the number of runs that have already been cut off
+     * @return the maximum number of nodes that this run may visit
+     */
+    long limit(int run);
+
+    /**
+     * A policy that never restarts.
+     */
+    RestartPolicy NEVER = run -> Long.MAX_VALUE;
+}
+
+/**
+ * LubyRestartPolicy follows the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ... scaled by a unit number of
+ * nodes. Luby, Sinclair and Zuckerman showed that this schedule is within a logarithmic factor of the optimal restart
+ * schedule for any distribution of run times, without having to know the distribution.
+ *
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+class LubyRestartPolicy implements RestartPolicy{
+    private final long unit;
+
+    /**
+     * Constructor: creates a Luby restart policy
+     * @param unit: the number of nodes that one step of the sequence stands for
+     */
+    public LubyRestartPolicy(long unit){
+        this.unit = unit;
+    }
+
+    public long limit(int run){
+        long steps = luby(run + 1);
+        return steps > Long.MAX_VALUE / unit ? Long.MAX_VALUE : steps * unit;
+    }
+
+    /**
+     * @param i: a position in the Luby sequence, starting from 1
+     * @return the i-th element of the Luby sequence
+     */
+    static long luby(long i){
+        while (true){
+            int k = 1;
+            while ((1L << k) - 1 < i){
+                k++;
+            }
+            if ((1L << k) - 1 == i){
+                return 1L << (k - 1);
+            }
+            i -= (1L << (k - 1)) - 1;
+        }
+    }
+}
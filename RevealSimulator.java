@@ -0,0 +1,190 @@
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * RevealSimulator measures how well each RevealStrategy plays the reveal game, and at what cost. In every game a puzzle
+ * with several solutions is taken from the corpus and one of its solutions is secretly picked as the true one. The
+ * strategy then repeatedly chooses a square, the square's value in the true solution is revealed, and the game ends once
+ * the puzzle has a unique solution. For every strategy the simulator reports the number of reveals needed, the CPU time
+ * spent per decision and the number of DLX searches started per decision.
+ *
+ * Every strategy plays the same games (same puzzles, same hidden solutions), and games run in parallel.
+ *
+ * Usage: java RevealSimulator [games per puzzle] [threads]
+ *
+ * @author Vani Mohindra
+ */
+public class RevealSimulator {
+
+   private static final int MAX_SOLUTIONS = 5000; // puzzles with more solutions are left out of the corpus
+
+   private final LinkedHashMap<String, Supplier<RevealStrategy>> strategies = new LinkedHashMap<String, Supplier<RevealStrategy>>();
+
+   /**
+    * The outcome of one game.
+    */
+   private static class Game {
+      int reveals;
+      long cpuNanos;
+      long dlxCalls;
+   }
+
+   /**
+    * Adds a strategy to the comparison. A new instance is created for every game, so strategies may keep state.
+    * @param name: the name under which the strategy is reported
+    * @param strategy: creates the strategy
+    */
+   public void addStrategy (String name, Supplier<RevealStrategy> strategy)
+   {
+      strategies.put(name, strategy);
+   }
+
+   /**
+    * Plays one game: reveals squares of the true solution, as chosen by the strategy, until the puzzle has a unique solution.
+    * The solutions that remain after a reveal are exactly the remaining solutions with the revealed value, so the game
+    * itself never has to run DLX. A strategy that keeps choosing squares that are already certain is stopped after 81 reveals.
+    */
+   private static Game play (RevealStrategy strategy, int [][] puzzle, List<int [][]> solutions, int [][] truth)
+   {
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      int [][] board = new int [9][];
+      for (int i=0; i<9; i++) board[i] = puzzle[i].clone();
+      List<int [][]> remaining = solutions;
+      Game g = new Game();
+      while (remaining.size()>1 && g.reveals<81)
+      {
+         long cpu = bean.getCurrentThreadCpuTime();
+         long calls = SudokuDLX.getCallCount();
+         int [] cell = strategy.chooseCell(board, Collections.unmodifiableList(remaining));
+         g.cpuNanos += bean.getCurrentThreadCpuTime()-cpu;
+         g.dlxCalls += SudokuDLX.getCallCount()-calls;
+         g.reveals++;
+
+         int r = cell[0], c = cell[1];
+         board[r][c] = truth[r][c];
+         ArrayList<int [][]> next = new ArrayList<int [][]>();
+         for (int [][] s : remaining)
+         {
+            if (s[r][c]==truth[r][c]) next.add(s);
+         }
+         remaining = next;
+      }
+      return g;
+   }
+
+   /**
+    * Plays every strategy on every puzzle of the corpus and prints a report.
+    * @param corpus: the puzzles
+    * @param games: the number of games per puzzle
+    * @param threads: the number of games played at the same time
+    * @param seed: decides the hidden solutions
+    */
+   public void run (List<int [][]> corpus, int games, int threads, long seed) throws InterruptedException, ExecutionException
+   {
+      ArrayList<List<int [][]>> solutionSets = new ArrayList<List<int [][]>>();
+      for (int [][] puzzle : corpus) solutionSets.add(new SudokuDLX().getSolutions(puzzle));
+
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      try {
+         LinkedHashMap<String, List<Future<Game>>> results = new LinkedHashMap<String, List<Future<Game>>>();
+         for (Map.Entry<String, Supplier<RevealStrategy>> e : strategies.entrySet())
+         {
+            ArrayList<Future<Game>> futures = new ArrayList<Future<Game>>();
+            Random rnd = new Random(seed); // the same hidden solutions for every strategy
+            for (int p=0; p<corpus.size(); p++)
+            {
+               for (int g=0; g<games; g++)
+               {
+                  int [][] puzzle = corpus.get(p);
+                  List<int [][]> sols = solutionSets.get(p);
+                  int [][] truth = sols.get(rnd.nextInt(sols.size()));
+                  RevealStrategy strategy = e.getValue().get();
+                  futures.add(pool.submit(() -> play(strategy, puzzle, sols, truth)));
+               }
+            }
+            results.put(e.getKey(), futures);
+         }
+
+         System.out.println(corpus.size()+" puzzles, "+games+" games each");
+         System.out.printf("%-28s %12s %12s %16s %16s%n", "strategy", "mean reveals", "max reveals", "CPU ms/decision", "DLX/decision");
+         for (Map.Entry<String, List<Future<Game>>> e : results.entrySet())
+         {
+            long reveals = 0, cpu = 0, calls = 0;
+            int max = 0;
+            for (Future<Game> f : e.getValue())
+            {
+               Game g = f.get();
+               reveals += g.reveals;
+               cpu += g.cpuNanos;
+               calls += g.dlxCalls;
+               max = Math.max(max, g.reveals);
+            }
+            int n = e.getValue().size();
+            double decisions = Math.max(reveals, 1);
+            System.out.printf("%-28s %12.3f %12d %16.3f %16.2f%n", e.getKey(), (double)reveals/n, max, cpu/1e6/decisions, calls/decisions);
+         }
+      } finally {
+         pool.shutdownNow();
+      }
+   }
+
+   /**
+    * Builds a corpus of puzzles with several solutions: the Driver puzzle, plus puzzles made by erasing random squares from
+    * the solutions of the unique puzzles in the benchmark corpus.
+    */
+   static ArrayList<int [][]> corpus (int erased, long seed)
+   {
+      Random rnd = new Random(seed);
+      SudokuDLX megamind = new SudokuDLX();
+      ArrayList<int [][]> corpus = new ArrayList<int [][]>();
+      for (String s : Benchmark.CORPUS)
+      {
+         int [][] puzzle = Benchmark.parse(s);
+         ArrayList<int [][]> sols = megamind.getSolutions(puzzle);
+         if (sols.size()>1)
+         {
+            if (sols.size()<=MAX_SOLUTIONS) corpus.add(puzzle);
+            continue;
+         }
+         while (true)
+         {
+            int [][] board = new int [9][];
+            for (int i=0; i<9; i++) board[i] = sols.get(0)[i].clone();
+            for (int k=0; k<erased; )
+            {
+               int cell = rnd.nextInt(81);
+               if (board[cell/9][cell%9]!=0)
+               {
+                  board[cell/9][cell%9] = 0;
+                  k++;
+               }
+            }
+            int n = megamind.getSolutions(board).size();
+            if (n>1 && n<=MAX_SOLUTIONS)
+            {
+               corpus.add(board);
+               break;
+            }
+         }
+      }
+      return corpus;
+   }
+
+   public static void main (String [] args) throws Exception
+   {
+      int games = args.length>0 ? Integer.parseInt(args[0]) : 20;
+      int threads = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+      RevealSimulator sim = new RevealSimulator();
+      sim.addStrategy("first uncertain", FirstUncertainStrategy::new);
+      Random seeds = new Random(2018);
+      sim.addStrategy("random", () -> new RandomStrategy(new Random(seeds.nextLong())));
+      sim.addStrategy("dumb greedy", DumbGreedyStrategy::new);
+      sim.addStrategy("smart greedy", SmartGreedyStrategy::new);
+      sim.addStrategy("smart greedy (re-solving)", ResolvingSmartGreedyStrategy::new);
+      sim.addStrategy("lookahead depth 2", () -> new LookaheadStrategy(2, 2000));
+      sim.run(corpus(54, 2018), games, threads, 42);
+   }
+}
@@ -0,0 +1,138 @@
+import java.util.*;
+
+/**
+ * Interface for a policy that recommends which square of a partially solved sudoku should be revealed next.
+ * @author Vani Mohindra
+ */
+public interface RevealStrategy {
+    /**
+     * Chooses the next square to reveal.
+     * @param puzzle: the sudoku board, with 0 for unknown squares; strategies must not modify it
+     * @param solutions: all solutions of the puzzle; strategies must not modify it
+     * @return the [r][c] pair of the chosen square
+     */
+    int[] chooseCell(int[][] puzzle, List<int[][]> solutions);
+}
+
+/**
+ * DumbGreedyStrategy reveals the square with the most possible values (SolutionsAnalyzer.dumbGreedy). Ties go to the
+ * first square in reading order.
+ *
+ * @author Vani Mohindra
+ */
+class DumbGreedyStrategy implements RevealStrategy{
+    public int[] chooseCell(int[][] puzzle, List<int[][]> solutions){
+        SolutionsAnalyzer analyzer = new SolutionsAnalyzer(solutions);
+        return analyzer.dumbGreedyCells(analyzer.getInfoBank()).get(0);
+    }
+}
+
+/**
+ * SmartGreedyStrategy reveals the square that leaves the lowest average entropy (SolutionsAnalyzer.smartGreedy). Ties go
+ * to the first square in reading order.
+ *
+ * @author Vani Mohindra
+ */
+class SmartGreedyStrategy implements RevealStrategy{
+    public int[] chooseCell(int[][] puzzle, List<int[][]> solutions){
+        SolutionsAnalyzer analyzer = new SolutionsAnalyzer(solutions);
+        return analyzer.smartGreedyCells(analyzer.getInfoBank()).get(0);
+    }
+}
+
+/**
+ * ResolvingSmartGreedyStrategy makes the same choice as SmartGreedyStrategy the way smartGreedy used to: by solving the
+ * puzzle again for every possible value of every uncertain square. It serves as a baseline for the cost of re-solving.
+ *
+ * @author Vani Mohindra
+ */
+class ResolvingSmartGreedyStrategy implements RevealStrategy{
+    public int[] chooseCell(int[][] puzzle, List<int[][]> solutions){
+        SolutionsAnalyzer analyzer = new SolutionsAnalyzer(solutions);
+        ArrayList<HashSet<Integer>>[] info = analyzer.getInfoBank();
+        SudokuDLX megamind = new SudokuDLX();
+        int[][] board = new int[9][];
+        for (int i = 0; i < 9; i++){
+            board[i] = puzzle[i].clone();
+        }
+        double lowest = Double.MAX_VALUE;
+        int[] best = null;
+        for (int i = 0; i < 9; i++){
+            for (int j = 0; j < 9; j++){
+                HashSet<Integer> h = info[i].get(j);
+                if (h.size() <= 1){
+                    continue;
+                }
+                double sum = 0;
+                for (int v : h){
+                    board[i][j] = v;
+                    sum += analyzer.getAvgEntropyOfSolutions(megamind.getSolutions(board));
+                }
+                board[i][j] = puzzle[i][j];
+                if (sum / h.size() < lowest - 0.000000001){
+                    lowest = sum / h.size();
+                    best = new int[] {i, j};
+                }
+            }
+        }
+        return best;
+    }
+}
+
+/**
+ * LookaheadStrategy reveals the square chosen by a LookaheadPlanner.
+ *
+ * @author Vani Mohindra
+ */
+class LookaheadStrategy implements RevealStrategy{
+    private final LookaheadPlanner planner;
+
+    /**
+     * Constructor: creates a strategy that plans on the thread that calls chooseCell, so that the CPU time of that thread
+     * (which RevealSimulator measures) is the full cost of planning
+     * @param depth: the number of reveals to look ahead
+     * @param budgetMillis: the time budget per decision in milliseconds
+     */
+    public LookaheadStrategy(int depth, long budgetMillis){
+        planner = new LookaheadPlanner(depth, budgetMillis, LookaheadPlanner.Objective.EXPECTED_REVEALS, 1);
+    }
+
+    public int[] chooseCell(int[][] puzzle, List<int[][]> solutions){
+        LookaheadPlanner.Plan plan = planner.plan(puzzle, solutions);
+        return new int[] {plan.row, plan.col};
+    }
+}
+
+/**
+ * RandomStrategy reveals a random uncertain square. It is the baseline that every other strategy should beat.
+ *
+ * @author Vani Mohindra
+ */
+class RandomStrategy implements RevealStrategy{
+    private final Random rnd;
+
+    /**
+     * Constructor: creates a random strategy
+     * @param rnd: the source of randomness
+     */
+    public RandomStrategy(Random rnd){
+        this.rnd = rnd;
+    }
+
+    public int[] chooseCell(int[][] puzzle, List<int[][]> solutions){
+        ArrayList<int[]> uncertain = LookaheadPlanner.uncertainSquares(solutions);
+        return uncertain.get(rnd.nextInt(uncertain.size()));
+    }
+}
+
+/**
+ * FirstUncertainStrategy reveals the first uncertain square in reading order, which is what a user who simply works
+ * through the board from the top would do.
+ *
+ * @author Vani Mohindra
+ */
+class FirstUncertainStrategy implements RevealStrategy{
+    public int[] chooseCell(int[][] puzzle, List<int[][]> solutions){
+        return LookaheadPlanner.uncertainSquares(solutions).get(0);
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.*;
+
+/**
+ * Interface for the strategy that decides in which order Algorithm X tries the rows that satisfy the chosen constraint
+ * (Step #3 of the algorithm).
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+public interface RowOrdering {
+    /**
+     * Writes the rows of the given column into rows in the order in which they should be tried.
+     * @param c: the chosen column; its rows are linked below it
+     * @param rows: the buffer to fill, at least c.size long
+     * @return the number of rows written
+     */
+    int order(ColumnNode c, DancingNode[] rows);
+}
+
+/**
+ * NaturalOrdering tries the rows from top to bottom, i.e. in the order of the exact cover grid.
+ *
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+class NaturalOrdering implements RowOrdering{
+    public int order(ColumnNode c, DancingNode[] rows){
+        int n = 0;
+        for (DancingNode r = c.D; r != c; r = r.D){
+            rows[n++] = r;
+        }
+        return n;
+    }
+}
+
+/**
+ * RandomOrdering tries the rows in a random order. Combined with restarts, this keeps one unlucky early choice from
+ * dominating the time to the first solution.
+ *
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+class RandomOrdering implements RowOrdering{
+    private final Random rnd;
+
+    /**
+     * Constructor: creates a random ordering
+     * @param rnd: the source of randomness
+     */
+    public RandomOrdering(Random rnd){
+        this.rnd = rnd;
+    }
+
+    public int order(ColumnNode c, DancingNode[] rows){
+        int n = 0;
+        for (DancingNode r = c.D; r != c; r = r.D){
+            int i = rnd.nextInt(n + 1); // inside-out Fisher-Yates shuffle
+            rows[n++] = rows[i];
+            rows[i] = r;
+        }
+        return n;
+    }
+}
+
+/**
+ * ValueFrequencyOrdering tries first the rows whose other constraints can be satisfied in the most ways, i.e. the rows with
+ * the largest total size of the other columns they belong to. For sudoku, this tries first the values that are still
+ * possible in the most places, which leaves as many options open as possible (the "least constraining value" heuristic).
+ *
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+class ValueFrequencyOrdering implements RowOrdering{
+    private int[] scores = new int[0];
+
+    public int order(ColumnNode c, DancingNode[] rows){
+        if (scores.length < c.size){
+            scores = new int[c.size];
+        }
+        int n = 0;
+        for (DancingNode r = c.D; r != c; r = r.D){
+            int score = 0;
+            for (DancingNode j = r.R; j != r; j = j.R){
+                score += j.C.size;
+            }
+            int i = n++;
+            for (; i > 0 && scores[i - 1] < score; i--){ // insertion sort, largest score first
+                scores[i] = scores[i - 1];
+                rows[i] = rows[i - 1];
+            }
+            scores[i] = score;
+            rows[i] = r;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,219 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * SearchCheckpoint records the progress of a long enumeration by DLX so that it can survive a crash or a restart. The search
+ * tree is explored depth first, so a node of the tree is identified by its path from the root: the position, among the rows
+ * tried at each depth, of the row that was chosen. Everything to the left of that path has been explored completely, so a
+ * checkpoint only needs the path, the number of solutions found so far and the tally of values in each square.
+ *
+ * A checkpoint can also restrict the enumeration to one of several disjoint shards. The subtrees that start after shardDepth
+ * real choices (i.e. choices between two or more rows; forced moves do not count) are divided among shardCount shards by a
+ * hash of their path, and so are the solutions found after fewer choices. Independent processes can therefore each
+ * enumerate one shard of the same puzzle, and their checkpoints can be merged into the full result at the end.
+ *
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+public class SearchCheckpoint {
+
+   private static final int MAGIC = 0x444C5843; // "DLXC"
+   private static final int VERSION = 1;
+
+   final String puzzle; // the puzzle being enumerated, row by row with '0' for unknown squares
+   final int shardIndex, shardCount, shardDepth;
+   int [] path = new int [0]; // position of the chosen row at each depth of the node to resume from
+   long solutions = 0;
+   final long [][] valueCounts = new long [81][10]; // valueCounts[cell][v] = solutions in which square cell holds v
+   boolean finished = false;
+
+   /**
+    * Constructor: creates the starting point of an enumeration of the whole search space
+    * @param sudoku: the sudoku board
+    */
+   public SearchCheckpoint (int [][] sudoku)
+   {
+      this(sudoku, 0, 1, 0);
+   }
+
+   /**
+    * Constructor: creates the starting point of an enumeration of one shard of the search space
+    * @param sudoku: the sudoku board
+    * @param shardIndex: the shard to enumerate, from 0 to shardCount-1
+    * @param shardCount: the number of shards
+    * @param shardDepth: the number of real choices after which the shards split
+    */
+   public SearchCheckpoint (int [][] sudoku, int shardIndex, int shardCount, int shardDepth)
+   {
+      this(key(sudoku), shardIndex, shardCount, shardDepth);
+   }
+
+   private SearchCheckpoint (String puzzle, int shardIndex, int shardCount, int shardDepth)
+   {
+      if (shardCount<1 || shardIndex<0 || shardIndex>=shardCount) throw new IllegalArgumentException("bad shard "+shardIndex+" of "+shardCount);
+      if (shardCount>1 && shardDepth<1) throw new IllegalArgumentException("shards need a shard depth of at least 1");
+      this.puzzle=puzzle;
+      this.shardIndex=shardIndex;
+      this.shardCount=shardCount;
+      this.shardDepth=shardDepth;
+   }
+
+   /**
+    * Decides whether the node with the given path belongs to this checkpoint's shard. DLX asks only about the nodes that
+    * are divided among the shards: the ones reached by the shardDepth-th real choice and the solutions reached by fewer.
+    * @param positions: the path of the node
+    * @param k: the depth of the node
+    * @return true if this shard should explore the node
+    */
+   boolean owns (int [] positions, int k)
+   {
+      if (shardCount==1) return true;
+      int h = 1;
+      for (int i=0; i<k; i++) h = 31*h+positions[i];
+      return Math.floorMod(h, shardCount)==shardIndex;
+   }
+
+   /**
+    * Records another solution.
+    * @param board: the solution, or null if the solution handler does not produce boards
+    */
+   void addSolution (int [][] board)
+   {
+      solutions++;
+      if (board==null) return;
+      for (int i=0; i<9; i++)
+      {
+         for (int j=0; j<9; j++)
+         {
+            valueCounts[9*i+j][board[i][j]]++;
+         }
+      }
+   }
+
+   /**
+    * @return the number of solutions found so far
+    */
+   public long getSolutionCount ()
+   {
+      return solutions;
+   }
+
+   /**
+    * @return the number of solutions found so far in which square [r][c] holds value v
+    */
+   public long getValueCount (int r, int c, int v)
+   {
+      return valueCounts[9*r+c][v];
+   }
+
+   /**
+    * @return true once the enumeration of this shard is complete
+    */
+   public boolean isFinished ()
+   {
+      return finished;
+   }
+
+   /**
+    * Writes the checkpoint to a file. The file is written under a temporary name first and then renamed, so a crash during
+    * the write leaves the previous checkpoint intact.
+    * @param file: the checkpoint file
+    */
+   public void write (File file) throws IOException
+   {
+      File tmp = new File(file.getPath()+".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))))
+      {
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         out.writeUTF(puzzle);
+         out.writeInt(shardIndex);
+         out.writeInt(shardCount);
+         out.writeInt(shardDepth);
+         out.writeBoolean(finished);
+         out.writeLong(solutions);
+         out.writeInt(path.length);
+         for (int p : path) out.writeInt(p);
+         for (long [] cell : valueCounts)
+         {
+            for (int v=1; v<=9; v++) out.writeLong(cell[v]);
+         }
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   /**
+    * Reads a checkpoint back from a file.
+    * @param file: the checkpoint file
+    * @return the checkpoint
+    */
+   public static SearchCheckpoint read (File file) throws IOException
+   {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+      {
+         if (in.readInt()!=MAGIC || in.readInt()!=VERSION) throw new IOException(file+" is not a search checkpoint");
+         SearchCheckpoint cp = new SearchCheckpoint(in.readUTF(), in.readInt(), in.readInt(), in.readInt());
+         cp.finished = in.readBoolean();
+         cp.solutions = in.readLong();
+         cp.path = new int [in.readInt()];
+         for (int i=0; i<cp.path.length; i++) cp.path[i] = in.readInt();
+         for (long [] cell : cp.valueCounts)
+         {
+            for (int v=1; v<=9; v++) cell[v] = in.readLong();
+         }
+         return cp;
+      }
+   }
+
+   /**
+    * Merges the finished checkpoints of every shard of an enumeration into the result for the whole search space.
+    * @param shards: one finished checkpoint per shard
+    * @return the merged result
+    */
+   public static SearchCheckpoint merge (List<SearchCheckpoint> shards)
+   {
+      if (shards.isEmpty()) throw new IllegalArgumentException("nothing to merge");
+      SearchCheckpoint first = shards.get(0);
+      boolean [] seen = new boolean [first.shardCount];
+      SearchCheckpoint total = new SearchCheckpoint(first.puzzle, 0, 1, first.shardDepth);
+      for (SearchCheckpoint s : shards)
+      {
+         if (!s.puzzle.equals(first.puzzle) || s.shardCount!=first.shardCount || s.shardDepth!=first.shardDepth)
+            throw new IllegalArgumentException("shards come from different enumerations");
+         if (!s.finished) throw new IllegalArgumentException("shard "+s.shardIndex+" has not finished");
+         if (seen[s.shardIndex]) throw new IllegalArgumentException("shard "+s.shardIndex+" appears twice");
+         seen[s.shardIndex] = true;
+         total.solutions += s.solutions;
+         for (int cell=0; cell<81; cell++)
+         {
+            for (int v=1; v<=9; v++) total.valueCounts[cell][v] += s.valueCounts[cell][v];
+         }
+      }
+      for (int i=0; i<seen.length; i++)
+      {
+         if (!seen[i]) throw new IllegalArgumentException("shard "+i+" is missing");
+      }
+      total.finished = true;
+      return total;
+   }
+
+   /**
+    * @return the sudoku board that is being enumerated
+    */
+   public int [][] getPuzzle ()
+   {
+      int [][] board = new int [9][9];
+      for (int i=0; i<81; i++) board[i/9][i%9] = puzzle.charAt(i)-'0';
+      return board;
+   }
+
+   static String key (int [][] sudoku)
+   {
+      StringBuilder sb = new StringBuilder(81);
+      for (int [] row : sudoku)
+      {
+         for (int v : row) sb.append((char)('0'+v));
+      }
+      return sb.toString();
+   }
+}
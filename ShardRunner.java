@@ -0,0 +1,118 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * ShardRunner runs long enumerations from the command line with checkpoints, and splits them into shards that separate
+ * JVM processes enumerate side by side. Puzzles are given row by row as 81 characters with '.' or '0' for unknown squares.
+ *
+ * Usage:
+ *    java ShardRunner run PUZZLE SHARD SHARDS FILE [SECONDS]  enumerates shard SHARD (0 to SHARDS-1), checkpointing to FILE
+ *                                                            every SECONDS seconds (default 60); resumes if FILE exists
+ *    java ShardRunner merge FILE...                          merges the checkpoints of every shard and prints the result
+ *    java ShardRunner launch PUZZLE SHARDS DIR [SECONDS]      runs every shard in its own JVM, checkpointing into DIR,
+ *                                                            then merges them
+ *
+ * @author Vani Mohindra, Rafal Szymanski
+ */
+public class ShardRunner {
+
+   static final int SHARD_DEPTH = 6; // number of real choices in the search tree after which the shards split
+
+   public static void main (String [] args) throws Exception
+   {
+      if (args.length>=5 && args[0].equals("run"))
+      {
+         long seconds = args.length>5 ? Long.parseLong(args[5]) : 60;
+         SearchCheckpoint cp = run(Benchmark.parse(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), new File(args[4]), seconds);
+         System.out.println("shard "+cp.shardIndex+" of "+cp.shardCount+": "+cp.getSolutionCount()+" solutions");
+      } else if (args.length>=2 && args[0].equals("merge")) {
+         ArrayList<File> files = new ArrayList<File>();
+         for (int i=1; i<args.length; i++) files.add(new File(args[i]));
+         print(merge(files));
+      } else if (args.length>=4 && args[0].equals("launch")) {
+         long seconds = args.length>4 ? Long.parseLong(args[4]) : 60;
+         print(launch(args[1], Integer.parseInt(args[2]), new File(args[3]), seconds));
+      } else {
+         System.out.println("usage: java ShardRunner run PUZZLE SHARD SHARDS FILE [SECONDS]");
+         System.out.println("       java ShardRunner merge FILE...");
+         System.out.println("       java ShardRunner launch PUZZLE SHARDS DIR [SECONDS]");
+      }
+   }
+
+   /**
+    * Enumerates one shard of a puzzle, resuming from the checkpoint file if it exists.
+    * @return the finished checkpoint of the shard
+    */
+   static SearchCheckpoint run (int [][] puzzle, int shard, int shards, File file, long seconds) throws IOException
+   {
+      SearchCheckpoint state = new SearchCheckpoint(puzzle, shard, shards, SHARD_DEPTH);
+      if (file.exists())
+      {
+         state = SearchCheckpoint.read(file);
+         if (!state.puzzle.equals(SearchCheckpoint.key(puzzle)) || state.shardIndex!=shard || state.shardCount!=shards)
+            throw new IOException(file+" belongs to a different enumeration");
+      }
+      return new SudokuDLX().enumerate(state, file, 1000*seconds);
+   }
+
+   /**
+    * Reads and merges the checkpoints of every shard of an enumeration.
+    */
+   static SearchCheckpoint merge (List<File> files) throws IOException
+   {
+      ArrayList<SearchCheckpoint> shards = new ArrayList<SearchCheckpoint>();
+      for (File f : files) shards.add(SearchCheckpoint.read(f));
+      return SearchCheckpoint.merge(shards);
+   }
+
+   /**
+    * Starts one JVM per shard on this machine, waits for all of them and merges their checkpoints. Shards whose checkpoint
+    * already exists resume from it, so a launch that was interrupted can simply be repeated.
+    */
+   static SearchCheckpoint launch (String puzzle, int shards, File dir, long seconds) throws IOException, InterruptedException
+   {
+      dir.mkdirs();
+      String java = System.getProperty("java.home")+File.separator+"bin"+File.separator+"java";
+      ArrayList<Process> processes = new ArrayList<Process>();
+      ArrayList<File> files = new ArrayList<File>();
+      for (int i=0; i<shards; i++)
+      {
+         File file = new File(dir, "shard-"+i+".ckpt");
+         files.add(file);
+         ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "ShardRunner", "run",
+               puzzle, Integer.toString(i), Integer.toString(shards), file.getPath(), Long.toString(seconds));
+         pb.inheritIO();
+         processes.add(pb.start());
+      }
+      for (int i=0; i<shards; i++)
+      {
+         int exit = processes.get(i).waitFor();
+         if (exit!=0) throw new IOException("shard "+i+" exited with status "+exit);
+      }
+      return merge(files);
+   }
+
+   /**
+    * Prints the merged result: the number of solutions and, for every uncertain square, how often each value appears.
+    */
+   private static void print (SearchCheckpoint total)
+   {
+      System.out.println(total.getSolutionCount()+" solutions");
+      for (int i=0; i<9; i++)
+      {
+         for (int j=0; j<9; j++)
+         {
+            StringBuilder line = new StringBuilder("["+i+"]"+"["+j+"]: ");
+            int values = 0;
+            for (int v=1; v<=9; v++)
+            {
+               long n = total.getValueCount(i, j, v);
+               if (n==0) continue;
+               line.append(v).append(" (").append(n).append("), ");
+               values++;
+            }
+            if (values>1) System.out.println(line);
+         }
+      }
+   }
+}
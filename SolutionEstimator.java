@@ -0,0 +1,243 @@
+import java.util.*;
+
+/**
+ * SolutionEstimator estimates the number of solutions to a sudoku puzzle, the distribution of values in every square and the
+ * average Shannon entropy of the squares without enumerating them. It repeatedly samples random root-to-leaf paths through the DLX
+ * search tree (see DLX.probe). Each path carries a weight whose average is an unbiased estimate of the number of solutions
+ * (Knuth's estimator), and the solutions reached by the probes, weighted the same way, give estimates of how often each
+ * value appears in each square. Sampling stops once the configured number of probes has been taken or the time budget
+ * runs out, whichever happens first, so the answer arrives in bounded time no matter how large the solution space is.
+ *
+ * The entropy is the Shannon entropy of these weighted value distributions, which is a smooth function of the weighted
+ * sums and so can be estimated along with its confidence interval. The count of values that a square takes, which
+ * SolutionsAnalyzer.getAvgEntropyOfSolutions uses, cannot: a sample misses rare values, and every probe that happens to
+ * reach one changes it by a whole step.
+ *
+ * @author Vani Mohindra
+ */
+public class SolutionEstimator {
+
+   private static final double Z95 = 1.959964; // two-sided 95% normal quantile
+   private static final int RESAMPLES = 200; // bootstrap resamples for the entropy interval
+   private static final double LOG2_9 = Math.log(9)/Math.log(2); // the largest entropy of a square
+
+   private final int samples;
+   private final long budgetMillis;
+   private final boolean importance;
+   private final Random rnd;
+
+   /**
+    * The outcome of a single probe: its weight and the solution it reached (null if the probe hit a dead end).
+    */
+   static class Sample {
+      final double weight;
+      final int [][] board;
+
+      Sample (double w, int [][] b)
+      {
+         weight=w;
+         board=b;
+      }
+   }
+
+   /**
+    * Constructor: creates an estimator that uses importance sampling.
+    * @param samples: the maximum number of probes
+    * @param budgetMillis: the maximum time to spend sampling, in milliseconds
+    */
+   public SolutionEstimator (int samples, long budgetMillis)
+   {
+      this(samples, budgetMillis, true, new Random());
+   }
+
+   /**
+    * Constructor: creates an estimator.
+    * @param samples: the maximum number of probes
+    * @param budgetMillis: the maximum time to spend sampling, in milliseconds
+    * @param importance: true for importance sampling, false for the plain Knuth estimator
+    * @param rnd: the source of randomness
+    */
+   public SolutionEstimator (int samples, long budgetMillis, boolean importance, Random rnd)
+   {
+      if (samples<1) throw new IllegalArgumentException("at least one sample is needed");
+      this.samples=samples;
+      this.budgetMillis=budgetMillis;
+      this.importance=importance;
+      this.rnd=rnd;
+   }
+
+   /**
+    * Estimates the solutions of a sudoku puzzle by probing the search tree of the given DLX instance.
+    * @param dlx: the DLX instance for the puzzle's exact cover grid
+    * @param puzzle: the sudoku board, with 0 for unknown squares
+    * @return the estimate
+    */
+   public Estimate estimate (DLX dlx, int [][] puzzle)
+   {
+      long deadline = System.currentTimeMillis()+budgetMillis;
+      Estimate e = new Estimate();
+      do {
+         e.add(dlx.probe(rnd, importance));
+      } while (e.n<samples && System.currentTimeMillis()<deadline);
+      return e;
+   }
+
+   /**
+    * Estimates built up from a sequence of probes, along with 95% confidence intervals.
+    */
+   public static class Estimate {
+      int n; // number of probes
+      private double sumW, sumW2; // sums of the weights and of their squares
+      private final double [][][] sumWV = new double [9][9][10]; // sum of the weights of probes that reached [r][c] = v
+      private final double [][][] sumW2V = new double [9][9][10]; // same, for the squared weights
+      private final ArrayList<Sample> probes = new ArrayList<Sample>(); // every probe, kept for resampling
+
+      void add (Sample s)
+      {
+         n++;
+         probes.add(s);
+         if (s.board==null) return;
+         double w = s.weight, w2 = w*w;
+         sumW += w;
+         sumW2 += w2;
+         for (int i=0; i<9; i++)
+         {
+            for (int j=0; j<9; j++)
+            {
+               sumWV[i][j][s.board[i][j]] += w;
+               sumW2V[i][j][s.board[i][j]] += w2;
+            }
+         }
+      }
+
+      /**
+       * @return the number of probes taken
+       */
+      public int getSamples ()
+      {
+         return n;
+      }
+
+      /**
+       * @return the estimated number of solutions
+       */
+      public double getSolutionCount ()
+      {
+         return sumW/n;
+      }
+
+      /**
+       * @return the 95% confidence interval {low, high} for the number of solutions
+       */
+      public double [] getSolutionCountInterval ()
+      {
+         double mean = sumW/n;
+         double var = n>1 ? (sumW2-n*mean*mean)/(n-1) : 0;
+         double half = Z95*Math.sqrt(Math.max(var, 0)/n);
+         return new double [] {Math.max(mean-half, 0), mean+half};
+      }
+
+      /**
+       * @return the estimated fraction of solutions in which square [r][c] holds value v
+       */
+      public double getProbability (int r, int c, int v)
+      {
+         return sumW==0 ? 0 : sumWV[r][c][v]/sumW;
+      }
+
+      /**
+       * The interval is based on the delta method for the ratio of two sample means.
+       * @return the 95% confidence interval {low, high} for the fraction of solutions in which square [r][c] holds value v
+       */
+      public double [] getProbabilityInterval (int r, int c, int v)
+      {
+         double p = getProbability(r, c, v);
+         if (sumW==0) return new double [] {0, 1};
+         // sum over probes of (w*(1[v] - p))^2
+         double ss = sumW2V[r][c][v]*(1-2*p)+p*p*sumW2;
+         double half = Z95*Math.sqrt(ss)/sumW;
+         return new double [] {Math.max(p-half, 0), Math.min(p+half, 1)};
+      }
+
+      /**
+       * Estimates the average Shannon entropy of the squares: the entropy in bits of the value of a square, when one of the
+       * solutions is picked at random, averaged over all 81 squares. The value distribution of each square is the one
+       * given by getProbability. This is not the average entropy of SolutionsAnalyzer.getAvgEntropyOfSolutions, which is
+       * log2 of the number of values that a square takes; the two agree only where the values of a square are equally
+       * common, and otherwise the Shannon entropy is lower.
+       * @return the estimated average Shannon entropy
+       */
+      public double getAvgShannonEntropy ()
+      {
+         return avgEntropy(sumWV, sumW);
+      }
+
+      /**
+       * The interval is a basic bootstrap interval: the probes are resampled with replacement RESAMPLES times,
+       * getAvgShannonEntropy is recomputed for every resample, and the spread of the resamples around the estimate is
+       * reflected about it. Unlike the percentile interval, this also corrects the downward bias that the entropy of an
+       * estimated distribution has.
+       * @return the 95% confidence interval {low, high} for the average Shannon entropy
+       */
+      public double [] getAvgShannonEntropyInterval ()
+      {
+         Random rnd = new Random(n); // the same probes always give the same interval
+         double [] stats = new double [RESAMPLES];
+         double [][][] wv = new double [9][9][10];
+         for (int b=0; b<RESAMPLES; b++)
+         {
+            for (double [][] row : wv)
+            {
+               for (double [] cell : row) Arrays.fill(cell, 0);
+            }
+            double w = 0;
+            for (int k=0; k<n; k++)
+            {
+               Sample s = probes.get(rnd.nextInt(n));
+               if (s.board==null) continue;
+               w += s.weight;
+               for (int i=0; i<9; i++)
+               {
+                  for (int j=0; j<9; j++) wv[i][j][s.board[i][j]] += s.weight;
+               }
+            }
+            stats[b] = avgEntropy(wv, w);
+         }
+         Arrays.sort(stats);
+         double h = getAvgShannonEntropy();
+         double low = 2*h-stats[(int)Math.ceil(0.975*(RESAMPLES-1))], high = 2*h-stats[(int)(0.025*(RESAMPLES-1))];
+         return new double [] {Math.max(low, 0), Math.min(high, LOG2_9)};
+      }
+
+      /**
+       * Helper method for getAvgShannonEntropy and getAvgShannonEntropyInterval.
+       * @param wv: wv[r][c][v] = sum of the weights of probes that reached [r][c] = v
+       * @param w: sum of the weights of all probes
+       */
+      private static double avgEntropy (double [][][] wv, double w)
+      {
+         if (w==0) return 0;
+         double sum = 0;
+         for (int i=0; i<9; i++)
+         {
+            for (int j=0; j<9; j++)
+            {
+               for (int v=1; v<=9; v++)
+               {
+                  double p = wv[i][j][v]/w;
+                  if (p>0) sum -= p*Math.log(p)/Math.log(2);
+               }
+            }
+         }
+         return sum/81;
+      }
+
+      public String toString ()
+      {
+         double [] count = getSolutionCountInterval();
+         double [] entropy = getAvgShannonEntropyInterval();
+         return String.format("%d samples: about %.1f solutions (95%% CI %.1f - %.1f), average Shannon entropy %.4f (95%% CI %.4f - %.4f)",
+               n, getSolutionCount(), count[0], count[1], getAvgShannonEntropy(), entropy[0], entropy[1]);
+      }
+   }
+}
@@ -1,6 +1,7 @@
 import java.util.HashSet;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Given a set of possible solutions to a sudoku puzzle, SolutionsAnalyzer is able to identify which squares 
@@ -10,13 +11,138 @@ import java.util.Iterator;
 public class SolutionsAnalyzer {
    ArrayList <int [][]> solutions = new ArrayList <int [][]> ();
    
+   // a new snapshot is published after this many solutions or this much time, whichever comes first, and whenever a 
+   // square gains a possible value
+   static final int PUBLISH_EVERY = 1024;
+   static final long PUBLISH_MILLIS = 20;
+   
+   private final int [] candidates = new int [81]; // candidates[9*r+c] has bit v set if square [r][c] can hold v
+   private int unpublished = 0;
+   private long lastPublished = System.nanoTime();
+   private volatile Snapshot snapshot = new Snapshot(0, new int [81], false, null);
+   
+   /**
+    * An immutable view of what the analyzer knew at some point while the solutions were still coming in. The possible 
+    * values of each square only grow as more solutions arrive, so the average entropy of a snapshot is a lower bound on the
+    * average entropy of the finished analysis.
+    */
+   public static final class Snapshot {
+      public final long solutions; // number of solutions seen
+      public final double avgEntropy; // average entropy of the squares, as in getAvgEntropyOfSolutions
+      public final boolean finished; // true if no more solutions will come
+      public final Throwable failure; // if the search stopped because of an error, the error; otherwise null
+      private final int [] candidates;
+      
+      Snapshot (long n, int [] masks, boolean done, Throwable error)
+      {
+         solutions=n; candidates=masks; finished=done; failure=error;
+         double sum = 0;
+         for (int m : masks)
+         {
+            if (m!=0) sum += Math.log(Integer.bitCount(m))/Math.log(2);
+         }
+         avgEntropy = sum/81;
+      }
+      
+      /**
+       * @return the values that square [r][c] holds in the solutions seen, as a bit mask with bit v set for value v
+       */
+      public int getCandidates (int r, int c)
+      {
+         return candidates[9*r+c];
+      }
+      
+      public String toString ()
+      {
+         if (failure!=null) return solutions+" solutions before the search failed ("+failure+"), average entropy "+avgEntropy;
+         return solutions+" solutions"+(finished ? "" : " so far")+", average entropy "+avgEntropy;
+      }
+   }
+   
    /**
-    * Stores another solution to the sudoku problem 
+    * Constructor: creates an analyzer that does not know any solutions yet
+    */
+   public SolutionsAnalyzer ()
+   {
+   }
+   
+   /**
+    * Constructor: creates an analyzer for a known set of solutions 
+    * @param sols: the solutions of the sudoku puzzle
+    */
+   public SolutionsAnalyzer (List <int [][]> sols)
+   {
+      solutions.addAll(sols);
+      for (int [][] sol : sols) mark(sol);
+      finish();
+   }
+   
+   /**
+    * Stores another solution to the sudoku problem, and publishes a new snapshot if one is due. Only the thread that runs
+    * the search may call this.
     * @param sol: the new Sudoku solution to be stored
     */
    public void addSolution (int [][] sol)
    {
       solutions.add(sol);
+      boolean grew = mark(sol);
+      if (grew || ++unpublished>=PUBLISH_EVERY || System.nanoTime()-lastPublished>=PUBLISH_MILLIS*1000000) publish(false, null);
+   }
+   
+   /**
+    * Publishes the final snapshot, once the search has found every solution.
+    */
+   public void finish ()
+   {
+      publish(true, null);
+   }
+   
+   /**
+    * Publishes the final snapshot of a search that stopped because of an error. The snapshot is marked finished, so that
+    * readers stop waiting, and carries the error.
+    * @param error: the error that stopped the search
+    */
+   public void fail (Throwable error)
+   {
+      publish(true, error);
+   }
+   
+   /**
+    * Returns the latest snapshot. Any thread may call this while the search is running; it never blocks the search.
+    * @return the latest snapshot
+    */
+   public Snapshot getSnapshot ()
+   {
+      return snapshot;
+   }
+   
+   /**
+    * Helper method for addSolution. Adds the values of a solution to the possible values of each square.
+    * @return true if some square gained a possible value
+    */
+   private boolean mark (int [][] sol)
+   {
+      boolean grew = false;
+      for (int i=0; i<9; i++)
+      {
+         for (int j=0; j<9; j++)
+         {
+            int bit = 1<<sol[i][j];
+            if ((candidates[9*i+j]&bit)==0)
+            {
+               candidates[9*i+j] |= bit;
+               grew = true;
+            }
+         }
+      }
+      return grew;
+   }
+   
+   private void publish (boolean finished, Throwable error)
+   {
+      snapshot = new Snapshot(solutions.size(), candidates.clone(), finished, error);
+      unpublished = 0;
+      lastPublished = System.nanoTime();
    }
  
    public double getAvgEntropyOfSolutions (ArrayList <int [][]> allSols)
@@ -148,10 +274,28 @@ public class SolutionsAnalyzer {
    }
    
    /**
-    *   Pick the square with the most entropy. If there is a tie, return all squares with the
+    *   Pick the square with the most entropy. If there is a tie, print all squares with the
     *   maximum entropy.  
     */
    public void dumbGreedy (ArrayList<HashSet <Integer>>[] info)
+   {
+      // print the locations (r,c) of the high entropy squares to the console
+      Iterator <int[]> it = dumbGreedyCells(info).iterator();
+      System.out.println("ACCORDING TO THE DUMB GREEDY ALGORITHM, YOU SHOULD PICK," );
+      while (it.hasNext())
+      {
+         int [] temp = it.next();
+         System.out.println("["+temp[0]+"]"+"["+temp[1]+"]");
+      }
+   }
+   
+   /**
+    *   Pick the square with the most entropy. If there is a tie, return all squares with the
+    *   maximum entropy.  
+    *   @param info: the sudoku grid containing possible values for each square
+    *   @return the [r][c] pairs of the chosen squares
+    */
+   public ArrayList <int []> dumbGreedyCells (ArrayList<HashSet <Integer>>[] info)
    {
       int max = -1;
       ArrayList <int []> highESquares = new ArrayList <int[]>();
@@ -181,18 +325,63 @@ public class SolutionsAnalyzer {
             }  
          }  
       }
-      // print the locations (r,c) of the high entropy squares to the console
-      Iterator <int[]> it = highESquares.iterator();
-      System.out.println("ACCORDING TO THE DUMB GREEDY ALGORITHM, YOU SHOULD PICK," );
+      return highESquares;
+   }
+   
+   /**
+    * Computes how informative each square is about every other square: the mutual information, in bits, between the
+    * values of every pair of squares across the solutions this analyzer knows.
+    * @return mi[a][b] = mutual information between squares [a/9][a%9] and [b/9][b%9]
+    */
+   public double [][] getMutualInformation ()
+   {
+      return MutualInformation.compute(solutions);
+   }
+   
+   /**
+    * Looks several reveals ahead with a LookaheadPlanner and prints to console the square that should be revealed next,
+    * along with the expected number of reveals (or bounds on it) needed until the solution is unique.
+    * @param currentPuzzle: the sudoku board whose solutions this analyzer holds
+    * @param depth: the number of reveals to look ahead
+    * @param budgetMillis: the time budget for planning in milliseconds
+    * @return the chosen plan
+    */
+   public LookaheadPlanner.Plan lookahead (int [][] currentPuzzle, int depth, long budgetMillis)
+   {
+      LookaheadPlanner planner = new LookaheadPlanner(depth, budgetMillis);
+      LookaheadPlanner.Plan plan = planner.plan(currentPuzzle, solutions);
+      System.out.println("ACCORDING TO THE LOOKAHEAD PLANNER, YOU SHOULD PICK," );
+      System.out.println(plan);
+      return plan;
+   }
+
+   /**
+    * Pick the square that, once revealed, leaves the lowest average entropy (averaged over the square's possible values).
+    * The solutions in which a square holds a given value are exactly the solutions of the puzzle with that value filled in,
+    * so instead of solving each of those puzzles, the solutions this analyzer already holds are grouped by value with a 
+    * ConditionalAnalysis.
+    * @param info: the sudoku grid containing possible values for each square
+    * @param currentPuzzle: the sudoku board that the solutions belong to
+    */
+   public void smartGreedy (ArrayList<HashSet <Integer>>[] info, int [][] currentPuzzle)
+   {
+      Iterator <int[]> it = smartGreedyCells(info).iterator();
+      System.out.println("ACCORDING TO THE SMART GREEDY ALGORITHM, YOU SHOULD PICK," );
       while (it.hasNext())
       {
          int [] temp = it.next();
          System.out.println("["+temp[0]+"]"+"["+temp[1]+"]");
-      }
+      }   
    }
    
-   public void smartGreedy (ArrayList<HashSet <Integer>>[] info, int [][] currentPuzzle)
+   /**
+    * Pick the square that, once revealed, leaves the lowest average entropy. If there is a tie, return all of the tied squares.
+    * @param info: the sudoku grid containing possible values for each square
+    * @return the [r][c] pairs of the chosen squares
+    */
+   public ArrayList <int []> smartGreedyCells (ArrayList<HashSet <Integer>>[] info)
    {
+      ConditionalAnalysis conditional = new ConditionalAnalysis(solutions);
       double [][] entScores = new double [9][9];
       for (int i=0; i<info.length; i++)
       {
@@ -202,17 +391,11 @@ public class SolutionsAnalyzer {
             if (h.size()<=1){
                entScores[i][j]=Integer.MAX_VALUE;
             } else {
-               int [][] puzzle = currentPuzzle;
-               
                double sum = 0; // entropy of board for THIS square
                Iterator <Integer> it = h.iterator();
                while (it.hasNext()) // looping through possible values for a given square
                {
-                  puzzle[i][j]=it.next();
-                  SudokuDLX megamind = new SudokuDLX();
-                  ArrayList <int [][]> allSols = megamind.getSolutions(puzzle); // now you have all possible solutions if the sudoku had that value
-                  double entropyOfBoardForThisValue = getAvgEntropyOfSolutions(allSols); // entropy of board for THIS square and THIS value
-                  sum += entropyOfBoardForThisValue;
+                  sum += conditional.getConditionalAvgEntropy(i, j, it.next()); // entropy of board for THIS square and THIS value
                }
                entScores[i][j]=sum/h.size();
             }
@@ -242,13 +425,72 @@ public class SolutionsAnalyzer {
             }
          }
       }
+      return winners;
+   }
+   
+   /**
+    * Estimation mode of smartGreedy for puzzles with too many solutions to enumerate. Estimates the average Shannon entropy
+    * of the board (see SolutionEstimator.Estimate.getAvgShannonEntropy) for every possible value of every uncertain square 
+    * by sampling instead of solving, and prints to console the squares that result in the lowest average Shannon entropy. The time budget is split evenly between the estimates. 
+    * @param currentPuzzle: the sudoku board
+    * @param samples: the maximum number of probes per estimate
+    * @param budgetMillis: the total time budget in milliseconds
+    */
+   public void smartGreedyEstimate (int [][] currentPuzzle, int samples, long budgetMillis)
+   {
+      SudokuDLX megamind = new SudokuDLX();
+      SolutionEstimator.Estimate base = megamind.estimateSolutions(currentPuzzle, new SolutionEstimator(samples, budgetMillis/82));
       
-      Iterator <int[]> it = winners.iterator();
-      System.out.println("ACCORDING TO THE SMART GREEDY ALGORITHM, YOU SHOULD PICK," );
-      while (it.hasNext())
+      int [][] puzzle = new int [9][9];
+      for (int i=0; i<9; i++) puzzle[i] = currentPuzzle[i].clone();
+      
+      ArrayList <int []> pairs = new ArrayList <int []> (); // (r, c, v) triplets seen in the estimate for uncertain squares
+      for (int i=0; i<9; i++)
       {
-         int [] temp = it.next();
-         System.out.println("["+temp[0]+"]"+"["+temp[1]+"]");
-      }   
+         for (int j=0; j<9; j++)
+         {
+            ArrayList <int []> values = new ArrayList <int []> ();
+            for (int v=1; v<=9; v++)
+            {
+               if (base.getProbability(i, j, v)>0) values.add(new int [] {i, j, v});
+            }
+            if (values.size()>1) pairs.addAll(values);
+         }
+      }
+      
+      long perEstimate = Math.max(1, budgetMillis/(pairs.size()+1));
+      double [][] entScores = new double [9][9];
+      int [][] counts = new int [9][9];
+      for (int [] p : pairs)
+      {
+         puzzle[p[0]][p[1]]=p[2];
+         SolutionEstimator.Estimate e = megamind.estimateSolutions(puzzle, new SolutionEstimator(samples, perEstimate));
+         puzzle[p[0]][p[1]]=currentPuzzle[p[0]][p[1]];
+         entScores[p[0]][p[1]] += e.getAvgShannonEntropy();
+         counts[p[0]][p[1]]++;
+      }
+      
+      double lowestEntropy = Double.MAX_VALUE;
+      for (int i=0; i<9; i++)
+      {
+         for (int j=0; j<9; j++)
+         {
+            if (counts[i][j]==0) continue;
+            entScores[i][j] /= counts[i][j];
+            if (entScores[i][j] < lowestEntropy) lowestEntropy = entScores[i][j];
+         }
+      }
+      
+      System.out.println("ACCORDING TO THE ESTIMATED SMART GREEDY ALGORITHM, BY AVERAGE SHANNON ENTROPY (" + base + "), YOU SHOULD PICK," );
+      for (int i=0; i<9; i++)
+      {
+         for (int j=0; j<9; j++)
+         {
+            if (counts[i][j]>0 && Math.abs(lowestEntropy - entScores[i][j])<0.000000001) 
+            {
+               System.out.println("["+i+"]"+"["+j+"]");
+            }
+         }
+      }
    }
 }
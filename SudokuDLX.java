@@ -1,3 +1,4 @@
+import java.io.*;
 import java.util.*;
 
 /**
@@ -8,6 +9,32 @@ import java.util.*;
  *
  */
 public class SudokuDLX {
+   
+   /**
+    * The exact cover engines that can solve a board. AUTO picks the one that SudokuDLX recommends for enumerating solutions.
+    */
+   public enum Engine { DLX, BITSET, AUTO }
+   
+   // AUTO always picks BitsetDLX. On the enumeration corpus of Benchmark it is 2-3 times faster than DLX on boards with 
+   // many solutions, and within about 15% of DLX either way on hard boards with a unique solution. Routing on an estimate 
+   // of the number of solutions cost 1.7-3 ms per board, more than most boards take to solve.
+   
+   // DLX hands the last few constraints of a board to its bitboard solver (see DLX.setHybridThreshold). On the enumeration 
+   // corpus of Benchmark, the total time is lowest around 96 open columns, 3-11% below plain DLX between runs, with hard 
+   // boards that have a unique solution unaffected. From about 192 on, the bitboard solver starts too early and hard 
+   // boards slow down sharply. Rerun Benchmark to check the choice.
+   static final int HYBRID_THRESHOLD = 96;
+   
+   // number of searches that SudokuDLX has started on each thread, so that callers can measure how many they triggered
+   private static final ThreadLocal<long []> CALLS = ThreadLocal.withInitial(() -> new long [1]);
+   
+   /**
+    * @return the number of searches (solving, counting, sampling or enumerating) started by SudokuDLX on the current thread
+    */
+   static long getCallCount ()
+   {
+      return CALLS.get()[0];
+   }
   
    /**
     * Helper method for sudokuExactCover. getIndex is a transformer function that converts an (R,C,V) triplet 
@@ -118,15 +145,138 @@ public class SudokuDLX {
     * @return 
     */
    protected void runSolver(int[][] sudoku){
+      CALLS.get()[0]++;
       int[][] cover = makeExactCoverGrid(sudoku);
       DLX dlx = new DLX(cover, new SudokuHandler(9),sudoku);
+      dlx.setHybridThreshold(HYBRID_THRESHOLD);
       dlx.runSolver();
    }
    
+   /**
+    * Starts finding and analyzing every solution of the sudoku board on a background thread, and returns at once. The 
+    * analyzer publishes snapshots of the solutions found so far, which the caller can poll with getSnapshot while the 
+    * search runs; the last snapshot is marked finished. If the search fails, the last snapshot also carries the error.
+    * 
+    * @param sudoku: the sudoku board
+    * @return the analyzer that receives the solutions
+    */
+   public SolutionsAnalyzer startAnalysis (int [][] sudoku)
+   {
+      CALLS.get()[0]++;
+      DLX dlx = new DLX(makeExactCoverGrid(sudoku), new SudokuHandler(9), sudoku);
+      dlx.verbose = false;
+      dlx.setHybridThreshold(HYBRID_THRESHOLD);
+      Thread t = new Thread(() -> {
+         try {
+            dlx.analyze();
+         } catch (RuntimeException | Error e) {
+            dlx.getAnalyzer().fail(e);
+            throw e;
+         }
+      }, "sudoku-analysis");
+      t.setDaemon(true);
+      t.start();
+      return dlx.getAnalyzer();
+   }
+   
    public ArrayList <int [][]> getSolutions (int [][] sudoku)
    {
+      CALLS.get()[0]++;
+      return makeSolver(sudoku, Engine.AUTO).getSolutions();
+   }
+   
+   /**
+    * Creates the exact cover engine that will solve the sudoku board. Engine.AUTO gives BitsetDLX.
+    * 
+    * @param sudoku: the sudoku board
+    * @param engine: the engine to use
+    * @return the engine, ready to solve the board
+    */
+   public ExactCoverSolver makeSolver (int [][] sudoku, Engine engine)
+   {
+      int [][] cover = makeExactCoverGrid (sudoku);
+      if (engine != Engine.DLX) return new BitsetDLX(cover, 9);
+      DLX dlx = new DLX(cover, new SudokuHandler(9));
+      dlx.setHybridThreshold(HYBRID_THRESHOLD);
+      return dlx;
+   }
+   
+   /**
+    * Estimates the number of solutions of the sudoku board, the distribution of values in each square and the average 
+    * entropy of the solutions by sampling the DLX search tree instead of enumerating every solution.
+    * 
+    * @param sudoku: the sudoku board
+    * @param estimator: the estimator, which holds the sample count and time budget
+    * @return the estimate
+    */
+   public SolutionEstimator.Estimate estimateSolutions (int [][] sudoku, SolutionEstimator estimator)
+   {
+      CALLS.get()[0]++;
       int [][] cover = makeExactCoverGrid (sudoku);
       DLX dlx = new DLX(cover, new SudokuHandler(9));
-      return dlx.getSolutions();
+      return estimator.estimate(dlx, sudoku);
+   }
+   
+   /**
+    * Finds a single solution of the sudoku board using the given search strategies. 
+    * 
+    * @param sudoku: the sudoku board
+    * @param selector: the strategy that chooses which constraint to satisfy next
+    * @param ordering: the strategy that decides in which order the candidate values are tried
+    * @param policy: the restart policy
+    * @return the first solution found, or null if the board has no solution
+    */
+   public int [][] getFirstSolution (int [][] sudoku, ColumnSelector selector, RowOrdering ordering, RestartPolicy policy)
+   {
+      CALLS.get()[0]++;
+      DLX dlx = makeDLX(sudoku);
+      dlx.setColumnSelector(selector);
+      dlx.setRowOrdering(ordering);
+      return dlx.getFirstSolution(policy);
+   }
+   
+   /**
+    * Creates a DLX instance for the sudoku board without running it, so that its search strategies can be configured.
+    * 
+    * @param sudoku: the sudoku board
+    * @return the DLX instance
+    */
+   DLX makeDLX (int [][] sudoku)
+   {
+      return new DLX(makeExactCoverGrid(sudoku), new SudokuHandler(9));
+   }
+   
+   /**
+    * Counts the solutions of the sudoku board and tallies the values in each square, enumerating only one solution out of 
+    * every set of solutions that are copies of each other under a symmetry of the board (see SudokuSymmetry). When the
+    * clues are symmetric under a transposition, a rotation of the bands or stacks, or a relabeling of the digits that
+    * appear in no clue, the search reaches about one solution in as many as the board has symmetries, and boards with tens
+    * of thousands of solutions are counted 2-5 times faster than with BitsetDLX; boards with few solutions can take a few
+    * milliseconds longer. For boards without symmetry this costs the same as counting every solution with BitsetDLX.
+    * 
+    * @param sudoku: the sudoku board
+    * @return the number of solutions, the tally of values in each square and the number of solutions actually reached
+    */
+   public SudokuSymmetry.Result enumerateWithSymmetry (int [][] sudoku)
+   {
+      CALLS.get()[0]++;
+      ArrayList <int []> group = SudokuSymmetry.automorphisms(sudoku, SudokuSymmetry.MAX_GROUP);
+      return new BitsetDLX(makeExactCoverGrid(sudoku), 9).enumerateSymmetric(group);
+   }
+   
+   /**
+    * Counts the solutions of the sudoku board in a checkpoint, without storing them, writing the progress to a checkpoint 
+    * file at regular intervals. Passing a checkpoint read back from the file resumes an interrupted enumeration, and passing
+    * a checkpoint for one shard enumerates only that shard (see ShardRunner).
+    * 
+    * @param state: where to start, either a new checkpoint or one read from a checkpoint file
+    * @param file: the checkpoint file, or null for no checkpoints
+    * @param intervalMillis: the time between checkpoints in milliseconds
+    * @return the finished checkpoint, holding the solution count and the tally of values in each square 
+    */
+   public SearchCheckpoint enumerate (SearchCheckpoint state, File file, long intervalMillis) throws IOException
+   {
+      CALLS.get()[0]++;
+      return makeDLX(state.getPuzzle()).enumerate(state, file, intervalMillis);
    }
 }
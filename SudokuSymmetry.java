@@ -0,0 +1,394 @@
+import java.util.*;
+
+/**
+ * SudokuSymmetry finds the symmetries of a sudoku puzzle, so that solutions which are copies of each other under a symmetry
+ * only need to be enumerated once. A symmetry of sudoku combines a rearrangement of the board (transposing it, permuting the
+ * three bands, permuting the rows inside each band, permuting the three stacks and the columns inside each stack) with a
+ * relabeling of the digits. It turns every solution of any puzzle into a solution of the transformed puzzle, so a symmetry
+ * that leaves the clues of a puzzle unchanged, an automorphism of the puzzle, turns its solutions into each other.
+ *
+ * The automorphisms of a puzzle form a group. Digits that appear in no clue can be relabeled among themselves freely, and
+ * the rearrangements of the board have to map every clue onto a clue, with a consistent relabeling of the digits in the
+ * clues. All 2*1296*1296 rearrangements are considered, but only those that send the clues onto squares that hold clues
+ * are built and have their values compared.
+ *
+ * An element of the group is stored as a permutation of the 729 rows of the exact cover grid of SudokuDLX: row
+ * 81*R+9*C+V-1 (counting R and C from 0) stands for value V in the cell at row R and column C, and its image is the row of
+ * the transformed cell and the relabeled value. See BitsetDLX.enumerateSymmetric for the enumeration itself.
+ *
+ * @author Vani Mohindra
+ */
+public class SudokuSymmetry {
+
+   static final int MAX_GROUP = 5000; // larger groups make every node of the search too expensive to be worth it
+
+   private static final int [][] PERMS = { {0,1,2}, {0,2,1}, {1,0,2}, {1,2,0}, {2,0,1}, {2,1,0} };
+
+   /**
+    * The result of an enumeration that explored one solution of every orbit.
+    */
+   public static class Result {
+      int groupSize;
+      long solutions;
+      long representatives;
+      final long [][] valueCounts = new long [81][10];
+
+      /**
+       * @return the number of automorphisms of the puzzle that the enumeration used, including the identity
+       */
+      public int getGroupSize ()
+      {
+         return groupSize;
+      }
+
+      /**
+       * @return the total number of solutions of the puzzle
+       */
+      public long getSolutionCount ()
+      {
+         return solutions;
+      }
+
+      /**
+       * @return the number of solutions that the search actually reached; every other solution is the image of one of them
+       */
+      public long getRepresentativeCount ()
+      {
+         return representatives;
+      }
+
+      /**
+       * @return the number of solutions in which square [r][c] holds value v
+       */
+      public long getValueCount (int r, int c, int v)
+      {
+         return valueCounts[9*r+c][v];
+      }
+
+      public String toString ()
+      {
+         return solutions+" solutions from "+representatives+" representatives, symmetry group of order "+groupSize;
+      }
+   }
+
+   /**
+    * Finds the automorphisms of a sudoku puzzle. If there are more than maxSize of them, only those that leave the digits
+    * missing from the clues in place are kept, and if there are still too many, only the identity.
+    * @param puzzle: the sudoku board, with 0 for unknown squares
+    * @param maxSize: the largest group to return
+    * @return the automorphisms as permutations of the rows of the exact cover grid, the identity first
+    */
+   public static ArrayList<int []> automorphisms (int [][] puzzle, int maxSize)
+   {
+      ArrayList<int []> clues = new ArrayList<int []>();
+      boolean [] present = new boolean [10];
+      for (int r=0; r<9; r++)
+      {
+         for (int c=0; c<9; c++)
+         {
+            if (puzzle[r][c]==0) continue;
+            clues.add(new int [] {r, c, puzzle[r][c]});
+            present[puzzle[r][c]] = true;
+         }
+      }
+      int missing = 0;
+      for (int v=1; v<=9; v++) if (!present[v]) missing++;
+      int relabelings = 1;
+      for (int i=2; i<=missing; i++) relabelings *= i;
+
+      ArrayList<int []> lines = linePermutations();
+      ArrayList<int []> group = new ArrayList<int []>();
+      ArrayList<int []> geometric = new ArrayList<int []>(); // {transpose, row map, column map} of each rearrangement that fits
+      int [] digits = new int [10];
+      boolean [] used = new boolean [10];
+      int [] rowClues = new int [9], colClues = new int [9];
+      for (int [] clue : clues)
+      {
+         rowClues[clue[0]]++;
+         colClues[clue[1]]++;
+      }
+      int [] colMask = new int [9]; // colMask[l] = the rows that have a clue in column l
+      for (int [] clue : clues) colMask[clue[1]] |= 1<<clue[0];
+      int [] moved = new int [9];
+      for (int t=0; t<2; t++)
+      {
+         // a row can only go where there is a row with as many clues, and a column only where there is a column with
+         // clues in the same rows; when the board is transposed, its columns become rows and its rows become columns
+         for (int i : matching(lines, t==1 ? colClues : rowClues, rowClues))
+         {
+            // moved[l] = the rows that the clues of the line that goes to column l end up in, once the rows are mapped
+            Arrays.fill(moved, 0);
+            for (int [] clue : clues)
+            {
+               if (t==1) moved[clue[0]] |= 1<<lines.get(i)[clue[1]];
+               else moved[clue[1]] |= 1<<lines.get(i)[clue[0]];
+            }
+            for (int j : columnMaps(moved, colMask))
+            {
+               Arrays.fill(digits, 0);
+               Arrays.fill(used, false);
+               if (!fits(puzzle, clues, t==1, lines.get(i), lines.get(j), digits, used)) continue;
+               geometric.add(new int [] {t, i, j});
+               if ((long)geometric.size()*relabelings>maxSize && geometric.size()>maxSize) return identityGroup();
+            }
+         }
+      }
+
+      boolean relabel = (long)geometric.size()*relabelings<=maxSize;
+      for (int [] g : geometric)
+      {
+         Arrays.fill(digits, 0);
+         Arrays.fill(used, false);
+         fits(puzzle, clues, g[0]==1, lines.get(g[1]), lines.get(g[2]), digits, used);
+         if (!relabel)
+         {
+            for (int v=1; v<=9; v++) if (!present[v]) digits[v] = v;
+            group.add(rowPermutation(g[0]==1, lines.get(g[1]), lines.get(g[2]), digits));
+            continue;
+         }
+         for (int [] completed : completions(digits, used))
+         {
+            group.add(rowPermutation(g[0]==1, lines.get(g[1]), lines.get(g[2]), completed));
+         }
+      }
+      // put the identity first
+      for (int i=0; i<group.size(); i++)
+      {
+         if (isIdentity(group.get(i)))
+         {
+            Collections.swap(group, 0, i);
+            break;
+         }
+      }
+      return group;
+   }
+
+   /**
+    * @return the group that holds only the identity
+    */
+   static ArrayList<int []> identityGroup ()
+   {
+      int [] id = new int [729];
+      for (int x=0; x<729; x++) id[x] = x;
+      ArrayList<int []> group = new ArrayList<int []>();
+      group.add(id);
+      return group;
+   }
+
+   /**
+    * Helper method for automorphisms. Lists the 1296 permutations of the nine rows (or columns) that keep bands (or stacks)
+    * together: map[i] is the new position of line i.
+    */
+   private static ArrayList<int []> linePermutations ()
+   {
+      ArrayList<int []> lines = new ArrayList<int []>();
+      for (int [] band : PERMS)
+      {
+         for (int [] p0 : PERMS)
+         {
+            for (int [] p1 : PERMS)
+            {
+               for (int [] p2 : PERMS)
+               {
+                  int [][] inside = {p0, p1, p2};
+                  int [] map = new int [9];
+                  for (int b=0; b<3; b++)
+                  {
+                     for (int i=0; i<3; i++) map[3*b+i] = 3*band[b]+inside[b][i];
+                  }
+                  lines.add(map);
+               }
+            }
+         }
+      }
+      return lines;
+   }
+
+   /**
+    * Helper method for automorphisms. Lists the line permutations that send every line to a line with the same number of
+    * clues: line i has from[i] clues and its image map[i] has to[map[i]].
+    */
+   private static ArrayList<Integer> matching (List<int []> lines, int [] from, int [] to)
+   {
+      ArrayList<Integer> out = new ArrayList<Integer>();
+      for (int i=0; i<lines.size(); i++)
+      {
+         int [] map = lines.get(i);
+         boolean ok = true;
+         for (int l=0; l<9 && ok; l++) ok = from[l]==to[map[l]];
+         if (ok) out.add(i);
+      }
+      return out;
+   }
+
+   /**
+    * Helper method for automorphisms. Lists the column maps (as indices into linePermutations) that send the clues of
+    * every line to squares that hold clues, before the values are compared: line l has to go to a column with clues in
+    * exactly the rows moved[l]. For each order of the stacks, the order inside each stack can be checked on its own.
+    */
+   private static ArrayList<Integer> columnMaps (int [] moved, int [] colMask)
+   {
+      ArrayList<Integer> out = new ArrayList<Integer>();
+      int [][] inside = new int [3][6];
+      int [] n = new int [3];
+      for (int b=0; b<6; b++)
+      {
+         for (int s=0; s<3; s++)
+         {
+            n[s] = 0;
+            for (int q=0; q<6; q++)
+            {
+               boolean fit = true;
+               for (int i=0; i<3 && fit; i++) fit = colMask[3*PERMS[b][s]+PERMS[q][i]]==moved[3*s+i];
+               if (fit) inside[s][n[s]++] = q;
+            }
+         }
+         for (int x=0; x<n[0]; x++)
+         {
+            for (int y=0; y<n[1]; y++)
+            {
+               for (int z=0; z<n[2]; z++) out.add(((b*6+inside[0][x])*6+inside[1][y])*6+inside[2][z]);
+            }
+         }
+      }
+      return out;
+   }
+
+   /**
+    * Helper method for automorphisms. Checks whether a rearrangement of the board maps every clue onto a clue, and records
+    * the relabeling of digits that it forces in digits (digits[v] = new label of v) and used (the labels taken).
+    */
+   private static boolean fits (int [][] puzzle, List<int []> clues, boolean transpose, int [] rows, int [] cols, int [] digits, boolean [] used)
+   {
+      for (int [] clue : clues)
+      {
+         int r = transpose ? rows[clue[1]] : rows[clue[0]];
+         int c = transpose ? cols[clue[0]] : cols[clue[1]];
+         int w = puzzle[r][c], v = clue[2];
+         if (w==0) return false;
+         if (digits[v]==0)
+         {
+            if (used[w]) return false;
+            digits[v] = w;
+            used[w] = true;
+         } else if (digits[v]!=w) return false;
+      }
+      return true;
+   }
+
+   /**
+    * Helper method for automorphisms. Lists every way to relabel the digits that appear in no clue among themselves.
+    */
+   private static ArrayList<int []> completions (int [] digits, boolean [] used)
+   {
+      ArrayList<int []> out = new ArrayList<int []>();
+      complete(digits.clone(), used.clone(), 1, out);
+      return out;
+   }
+
+   private static void complete (int [] digits, boolean [] used, int v, ArrayList<int []> out)
+   {
+      if (v>9)
+      {
+         out.add(digits.clone());
+         return;
+      }
+      if (digits[v]!=0)
+      {
+         complete(digits, used, v+1, out);
+         return;
+      }
+      for (int w=1; w<=9; w++)
+      {
+         if (used[w]) continue;
+         used[w] = true;
+         digits[v] = w;
+         complete(digits, used, v+1, out);
+         digits[v] = 0;
+         used[w] = false;
+      }
+   }
+
+   /**
+    * Helper method for automorphisms. Turns a symmetry into a permutation of the rows of the exact cover grid.
+    */
+   private static int [] rowPermutation (boolean transpose, int [] rows, int [] cols, int [] digits)
+   {
+      int [] perm = new int [729];
+      for (int r=0; r<9; r++)
+      {
+         for (int c=0; c<9; c++)
+         {
+            int r2 = transpose ? rows[c] : rows[r];
+            int c2 = transpose ? cols[r] : cols[c];
+            for (int v=1; v<=9; v++) perm[81*r+9*c+v-1] = 81*r2+9*c2+digits[v]-1;
+         }
+      }
+      return perm;
+   }
+
+   /**
+    * Turns a symmetry, given as a permutation of the rows of the exact cover grid, into the permutation of the 324 columns
+    * (constraints) that goes with it: every column holds two rows that share no other column, and the column is mapped to
+    * the only column that their images share.
+    * @param perm: the symmetry as a permutation of the rows
+    * @return the image of each column, with the columns laid out as in SudokuDLX
+    */
+   static int [] columnPermutation (int [] perm)
+   {
+      int [] out = new int [324];
+      for (int j=0; j<324; j++)
+      {
+         int t = j%81, v = t%9, x, y;
+         if (j<81) // the cell t
+         {
+            x = 9*t;
+            y = x+1;
+         } else if (j<162) // value v+1 in row t/9
+         {
+            x = 81*(t/9)+v;
+            y = x+36;
+         } else if (j<243) // value v+1 in column t/9
+         {
+            x = 9*(t/9)+v;
+            y = x+324;
+         } else // value v+1 in box t/9
+         {
+            x = 81*(3*(t/27))+9*(3*(t/9%3))+v;
+            y = x+90;
+         }
+         int [] a = columns(perm[x]), b = columns(perm[y]);
+         for (int i=0; i<4; i++)
+         {
+            if (a[i]==b[i]) out[j] = a[i];
+         }
+      }
+      return out;
+   }
+
+   /**
+    * Helper method for columnPermutation. Lists the four columns of a row: its cell, then value in row, value in column and
+    * value in box.
+    */
+   private static int [] columns (int x)
+   {
+      int r = x/81, c = x/9%9, v = x%9;
+      return new int [] {9*r+c, 81+9*r+v, 162+9*c+v, 243+9*(3*(r/3)+c/3)+v};
+   }
+
+   private static boolean isIdentity (int [] perm)
+   {
+      for (int x=0; x<perm.length; x++) if (perm[x]!=x) return false;
+      return true;
+   }
+
+   /**
+    * @return the symmetry that applies t first and then m
+    */
+   static int [] compose (int [] m, int [] t)
+   {
+      int [] out = new int [t.length];
+      for (int x=0; x<t.length; x++) out[x] = m[t[x]];
+      return out;
+   }
+}